@@ -0,0 +1,126 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import de.swiftbyte.gmc.daemon.utils.BackupArchiveUtils;
+import de.swiftbyte.gmc.daemon.utils.ParallelZipWriter;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zeroturnaround.zip.ZipUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures packing a synthetic {@code SavedArks} tree: the streaming {@link BackupArchiveUtils#writeZip} path at
+ * different compression levels against the former copy-then-{@link ZipUtil#pack} path. The tree holds one map save
+ * of the given size plus player and tribe files; the content is half random and half repetitive, so it compresses
+ * roughly like real saves.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BackupArchiveBenchmark {
+
+    private static final String MAP = "TheIsland_WP";
+
+    @Param({"16", "256"})
+    private int saveSizeMegabytes;
+
+    @Param({"10", "200"})
+    private int playerCount;
+
+    private Path root;
+    private Path saveLocation;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("gmc-backup-benchmark");
+        saveLocation = Files.createDirectories(root.resolve("SavedArks").resolve(MAP));
+        target = root.resolve("backup.zip");
+
+        Random random = new Random(42);
+        writeSaveFile(saveLocation.resolve(MAP + ".ark"), saveSizeMegabytes * 1024L * 1024, random);
+        // Rotated map saves are not part of a backup but still have to be skipped
+        writeSaveFile(saveLocation.resolve(MAP + "_01.01.2025_00.00.00.ark"), 1024 * 1024, random);
+        for (int i = 0; i < playerCount; i++) {
+            writeSaveFile(saveLocation.resolve("7656119" + (8000000000L + i) + ".arkprofile"), 64 * 1024, random);
+            if (i % 5 == 0) {
+                writeSaveFile(saveLocation.resolve((1000000 + i) + ".arktribe"), 16 * 1024, random);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteBackup() throws IOException {
+        Files.deleteIfExists(target);
+        FileUtils.deleteDirectory(root.resolve("tmp").toFile());
+    }
+
+    @Benchmark
+    public List<BackupArchiveUtils.SaveFile> collectSaveFiles() throws IOException {
+        return BackupArchiveUtils.collectSaveFiles(saveLocation, MAP);
+    }
+
+    @Benchmark
+    public long writeZipFast() throws IOException {
+        return writeZip(ParallelZipWriter.CompressionLevel.FAST);
+    }
+
+    @Benchmark
+    public long writeZipDefault() throws IOException {
+        return writeZip(ParallelZipWriter.CompressionLevel.DEFAULT);
+    }
+
+    @Benchmark
+    public long copyAndPack() throws IOException {
+        Path copy = root.resolve("tmp");
+        FileUtils.copyDirectory(saveLocation.toFile(), copy.toFile());
+        // Like the copy mode of BackupService, rotated map saves are removed from the copy
+        Files.delete(copy.resolve(MAP + "_01.01.2025_00.00.00.ark"));
+        ZipUtil.pack(copy.toFile(), target.toFile());
+        return Files.size(target);
+    }
+
+    private long writeZip(ParallelZipWriter.CompressionLevel level) throws IOException {
+        BackupArchiveUtils.writeZip(BackupArchiveUtils.collectSaveFiles(saveLocation, MAP), target, level);
+        return Files.size(target);
+    }
+
+    private static void writeSaveFile(Path path, long size, Random random) throws IOException {
+        byte[] block = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (long written = 0; written < size; written += block.length) {
+                // Random first half, zeroed second half
+                byte[] randomHalf = new byte[block.length / 2];
+                random.nextBytes(randomHalf);
+                System.arraycopy(randomHalf, 0, block, 0, randomHalf.length);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+}
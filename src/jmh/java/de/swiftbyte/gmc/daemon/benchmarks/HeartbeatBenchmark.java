@@ -0,0 +1,102 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.swiftbyte.gmc.common.entity.GameServerState;
+import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeHeartbeatPacket;
+import de.swiftbyte.gmc.daemon.metrics.Metric;
+import de.swiftbyte.gmc.daemon.metrics.MetricsHistory;
+import de.swiftbyte.gmc.daemon.utils.HeartbeatDeltaEncoder;
+import de.swiftbyte.gmc.daemon.utils.HeartbeatUtils;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a heartbeat with {@link HeartbeatUtils}, summarising the metrics history of every server since
+ * the previous heartbeat, and serialising it as a full heartbeat and as a delta against an acknowledged baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeartbeatBenchmark {
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 5000;
+
+    @Param({"1", "16", "64"})
+    private int serverCount;
+
+    private final List<HeartbeatUtils.ServerStatus> servers = new ArrayList<>();
+    private final ObjectWriter writer = MapperUtils.writerFor(NodeHeartbeatPacket.class);
+
+    private long since;
+    private HeartbeatDeltaEncoder encoder;
+
+    @Setup
+    public void setup() {
+        long now = System.currentTimeMillis();
+        since = now - 2 * SAMPLE_INTERVAL_MILLIS;
+
+        for (int i = 0; i < serverCount; i++) {
+            String serverId = UUID.randomUUID().toString();
+            servers.add(new HeartbeatUtils.ServerStatus(serverId, GameServerState.ONLINE, 0));
+            // One hour of samples, so the summaries have to skip older buckets
+            for (long timestamp = now - TimeUnit.HOURS.toMillis(1); timestamp <= now; timestamp += SAMPLE_INTERVAL_MILLIS) {
+                MetricsHistory.record(serverId, Metric.CPU, timestamp, 20 + i % 50);
+                MetricsHistory.record(serverId, Metric.RAM, timestamp, 8192 + i * 16);
+                MetricsHistory.record(serverId, Metric.DISK, timestamp, 4);
+                MetricsHistory.record(serverId, Metric.PLAYERS, timestamp, i % 70);
+            }
+        }
+        for (long timestamp = now - TimeUnit.HOURS.toMillis(1); timestamp <= now; timestamp += SAMPLE_INTERVAL_MILLIS) {
+            MetricsHistory.record(MetricsHistory.NODE, Metric.CPU, timestamp, 40);
+            MetricsHistory.record(MetricsHistory.NODE, Metric.RAM, timestamp, 65536);
+            MetricsHistory.record(MetricsHistory.NODE, Metric.DISK, timestamp, 500_000);
+        }
+
+        // Baseline of an unchanged node, so every delta after the keyframe is empty
+        encoder = new HeartbeatDeltaEncoder(Integer.MAX_VALUE, 5, 64);
+        encoder.acknowledge(encoder.encode(buildPacket().getGameServers()));
+    }
+
+    @Benchmark
+    public NodeHeartbeatPacket build() {
+        return buildPacket();
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() throws IOException {
+        return writer.writeValueAsBytes(buildPacket());
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeDelta() throws IOException {
+        NodeHeartbeatPacket packet = buildPacket();
+        HeartbeatDeltaEncoder.Frame frame = encoder.encode(packet.getGameServers());
+        packet.setGameServers(frame.updates());
+        byte[] serialized = writer.writeValueAsBytes(packet);
+        encoder.acknowledge(frame);
+        return serialized;
+    }
+
+    private NodeHeartbeatPacket buildPacket() {
+        return HeartbeatUtils.buildHeartbeatPacket(servers, since);
+    }
+}
@@ -0,0 +1,101 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import de.swiftbyte.gmc.common.parser.IniConverter;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ini conversion of {@code ServerUtils.writeIniFiles} for all servers of a node, once on its own and
+ * once including writing {@code GameUserSettings.ini} and {@code Game.ini}. The settings are synthetic sections of
+ * the given size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IniFilesBenchmark {
+
+    @Param({"1", "16"})
+    private int serverCount;
+
+    @Param({"20", "500"})
+    private int settingsPerSection;
+
+    private final List<LinkedHashMap<String, LinkedHashMap<String, Object>>> gameUserSettings = new ArrayList<>();
+    private final List<LinkedHashMap<String, LinkedHashMap<String, Object>>> gameSettings = new ArrayList<>();
+
+    private Path installRoot;
+
+    @Setup
+    public void setup() throws IOException {
+        for (int server = 0; server < serverCount; server++) {
+            gameUserSettings.add(createSettings(List.of("ServerSettings", "SessionSettings", "/Script/ShooterGame.ShooterGameUserSettings")));
+            gameSettings.add(createSettings(List.of("/Script/ShooterGame.ShooterGameMode")));
+        }
+        installRoot = Files.createTempDirectory("gmc-ini-benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(installRoot.toFile());
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        IniConverter iniConverter = new IniConverter();
+        for (int i = 0; i < serverCount; i++) {
+            blackhole.consume(iniConverter.convertFromMap(gameUserSettings.get(i)));
+            blackhole.consume(iniConverter.convertFromMap(gameSettings.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void convertAndWrite() throws IOException {
+        IniConverter iniConverter = new IniConverter();
+        for (int i = 0; i < serverCount; i++) {
+            Path configDir = installRoot.resolve("server-" + i).resolve("ShooterGame/Saved/Config/WindowsServer");
+            Files.createDirectories(configDir);
+            Files.write(configDir.resolve("GameUserSettings.ini"), iniConverter.convertFromMap(gameUserSettings.get(i)).getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            Files.write(configDir.resolve("Game.ini"), iniConverter.convertFromMap(gameSettings.get(i)).getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    private LinkedHashMap<String, LinkedHashMap<String, Object>> createSettings(List<String> sections) {
+        LinkedHashMap<String, LinkedHashMap<String, Object>> settings = new LinkedHashMap<>();
+        for (String section : sections) {
+            LinkedHashMap<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < settingsPerSection; i++) {
+                values.put("Setting" + i, switch (i % 3) {
+                    case 0 -> i % 2 == 0;
+                    case 1 -> i * 0.5;
+                    default -> "Value" + i;
+                });
+            }
+            settings.put(section, values);
+        }
+        return settings;
+    }
+}
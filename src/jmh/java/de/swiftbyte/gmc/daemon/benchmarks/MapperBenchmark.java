@@ -0,0 +1,115 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.swiftbyte.gmc.common.entity.Backup;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call mapper construction the daemon used to do with the shared readers and writers of
+ * {@link MapperUtils}, with and without Blackbird. The payload is a backup catalog snapshot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private static final TypeReference<HashMap<String, Backup>> BACKUPS_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"10", "500"})
+    private int backupCount;
+
+    private HashMap<String, Backup> backups;
+    private byte[] serialized;
+
+    private ObjectReader sharedReader;
+    private ObjectWriter sharedWriter;
+    private ObjectReader blackbirdReader;
+    private ObjectWriter blackbirdWriter;
+
+    @Setup
+    public void setup() throws IOException {
+        backups = new HashMap<>();
+        for (int i = 0; i < backupCount; i++) {
+            Backup backup = new Backup();
+            backup.setBackupId("gmc-back-" + UUID.randomUUID());
+            backup.setCreatedAt(Instant.now());
+            backup.setExpiresAt(backup.getCreatedAt().plus(7, ChronoUnit.DAYS));
+            backup.setServerId(UUID.randomUUID().toString());
+            backup.setName("2025.01.01_00-00-00_TheIsland_WP");
+            backup.setAutoBackup(true);
+            backup.setSize(1024L * 1024 * 1024);
+            backups.put(backup.getBackupId(), backup);
+        }
+
+        ObjectMapper mapper = MapperUtils.createMapper(new JsonFactory(), false);
+        sharedReader = mapper.readerFor(BACKUPS_TYPE);
+        sharedWriter = mapper.writerFor(BACKUPS_TYPE);
+
+        ObjectMapper blackbirdMapper = MapperUtils.createMapper(new JsonFactory(), true);
+        blackbirdReader = blackbirdMapper.readerFor(BACKUPS_TYPE);
+        blackbirdWriter = blackbirdMapper.writerFor(BACKUPS_TYPE);
+
+        serialized = sharedWriter.writeValueAsBytes(backups);
+    }
+
+    @Benchmark
+    public HashMap<String, Backup> readPerCallMapper() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.readValue(serialized, BACKUPS_TYPE);
+    }
+
+    @Benchmark
+    public HashMap<String, Backup> readShared() throws IOException {
+        return sharedReader.readValue(serialized);
+    }
+
+    @Benchmark
+    public HashMap<String, Backup> readSharedBlackbird() throws IOException {
+        return blackbirdReader.readValue(serialized);
+    }
+
+    @Benchmark
+    public byte[] writePerCallMapper() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.writeValueAsBytes(backups);
+    }
+
+    @Benchmark
+    public byte[] writeShared() throws IOException {
+        return sharedWriter.writeValueAsBytes(backups);
+    }
+
+    @Benchmark
+    public byte[] writeSharedBlackbird() throws IOException {
+        return blackbirdWriter.writeValueAsBytes(backups);
+    }
+}
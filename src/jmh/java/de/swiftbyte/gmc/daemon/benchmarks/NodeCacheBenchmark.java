@@ -0,0 +1,107 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import de.swiftbyte.gmc.common.entity.GameType;
+import de.swiftbyte.gmc.common.model.SettingProfile;
+import de.swiftbyte.gmc.daemon.cache.CacheModel;
+import de.swiftbyte.gmc.daemon.cache.GameServerCacheModel;
+import de.swiftbyte.gmc.daemon.utils.PersistenceFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialising the node cache in both persistence formats, and the unchanged check {@code NodeCache} runs
+ * before every write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeCacheBenchmark {
+
+    @Param({"1", "32"})
+    private int serverCount;
+
+    @Param({"20", "200"})
+    private int settingsPerServer;
+
+    private CacheModel cacheModel;
+    private byte[] lastWritten;
+
+    @Setup
+    public void setup() throws IOException {
+        HashMap<String, GameServerCacheModel> servers = new HashMap<>();
+        for (int i = 0; i < serverCount; i++) {
+            servers.put(UUID.randomUUID().toString(), GameServerCacheModel.builder()
+                    .friendlyName("Server " + i)
+                    .gameType(i % 2 == 0 ? GameType.ARK_ASCENDED : GameType.ARK_EVOLVED)
+                    .installDir("/opt/gmc/servers/server-" + i)
+                    .settings(createSettings())
+                    .build());
+        }
+
+        cacheModel = CacheModel.builder()
+                .nodeName("daemon")
+                .teamName("gmc")
+                .serverPath("/opt/gmc/servers")
+                .defaultServerDirectory("/opt/gmc/servers")
+                .backupPath("/opt/gmc/backups")
+                .gameServerCacheModelHashMap(servers)
+                .build();
+
+        lastWritten = PersistenceFormat.JSON.getWriter().writeValueAsBytes(cacheModel);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws IOException {
+        return PersistenceFormat.JSON.getWriter().writeValueAsBytes(cacheModel);
+    }
+
+    @Benchmark
+    public byte[] writeSmile() throws IOException {
+        return PersistenceFormat.SMILE.getWriter().writeValueAsBytes(cacheModel);
+    }
+
+    @Benchmark
+    public boolean unchangedCheck() throws IOException {
+        return Arrays.equals(PersistenceFormat.JSON.getWriter().writeValueAsBytes(cacheModel), lastWritten);
+    }
+
+    private SettingProfile createSettings() {
+        LinkedHashMap<String, Object> serverSettings = new LinkedHashMap<>();
+        HashMap<String, Object> questionMarkParams = new HashMap<>();
+        for (int i = 0; i < settingsPerServer; i++) {
+            serverSettings.put("Setting" + i, i % 2 == 0 ? "Value" + i : i * 0.5);
+            questionMarkParams.put("Param" + i, i % 3 == 0);
+        }
+
+        LinkedHashMap<String, LinkedHashMap<String, Object>> gameUserSettings = new LinkedHashMap<>();
+        gameUserSettings.put("ServerSettings", serverSettings);
+
+        SettingProfile settings = new SettingProfile();
+        settings.setMap("TheIsland_WP");
+        settings.setGameUserSettings(gameUserSettings);
+        settings.setGameSettings(new LinkedHashMap<>());
+        settings.setGmcSettings(new HashMap<>());
+        settings.setHyphenParams(new HashMap<>());
+        settings.setQuestionMarkParams(questionMarkParams);
+        return settings;
+    }
+}
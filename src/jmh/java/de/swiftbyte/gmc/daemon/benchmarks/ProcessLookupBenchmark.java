@@ -0,0 +1,75 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import de.swiftbyte.gmc.daemon.service.ProcessIndexService;
+import de.swiftbyte.gmc.daemon.utils.CommonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the process lookups of one update round over all servers: {@link CommonUtils#getProcessPID} against the
+ * cached index, the same with a fresh process scan, and the linear scan of the process table per lookup the daemon
+ * used to do. Every second server is "running" (the directory of this JVM), the others are not, which is the most
+ * expensive case for a linear scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessLookupBenchmark {
+
+    @Param({"1", "16"})
+    private int serverCount;
+
+    private final List<String> directories = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        String runningDirectory = Path.of(ProcessHandle.current().info().command().orElseThrow()).getParent().toString();
+        for (int i = 0; i < serverCount; i++) {
+            directories.add(i % 2 == 0 ? runningDirectory : Path.of("/opt/gmc/servers/server-" + i).toAbsolutePath().toString());
+        }
+    }
+
+    @Benchmark
+    public void cachedIndex(Blackhole blackhole) {
+        for (String directory : directories) {
+            blackhole.consume(CommonUtils.getProcessPID(directory));
+        }
+    }
+
+    @Benchmark
+    public void freshIndex(Blackhole blackhole) {
+        ProcessIndexService.invalidate();
+        for (String directory : directories) {
+            blackhole.consume(CommonUtils.getProcessPID(directory));
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (String directory : directories) {
+            blackhole.consume(ProcessHandle.allProcesses()
+                    .filter(handle -> handle.info().command().map(command -> command.contains(directory)).orElse(false))
+                    .map(handle -> String.valueOf(handle.pid()))
+                    .findFirst()
+                    .orElse(null));
+        }
+    }
+}
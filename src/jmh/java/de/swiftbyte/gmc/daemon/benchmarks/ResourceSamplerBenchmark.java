@@ -0,0 +1,87 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import de.swiftbyte.gmc.common.entity.ResourceUsage;
+import de.swiftbyte.gmc.daemon.service.ResourceSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import oshi.SystemInfo;
+import oshi.hardware.GlobalMemory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of one heartbeat sample: the node sample of {@link ResourceSampler} against building a new
+ * {@link SystemInfo} for every heartbeat, and the server sample for a number of idle child processes that stand in
+ * for game servers. The server sample is expected to stay well below {@code resource-sampler-budget-millis}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceSamplerBenchmark {
+
+    @Param({"1", "8"})
+    private int serverCount;
+
+    private final List<Process> processes = new ArrayList<>();
+    private final Map<String, Long> rootPids = new HashMap<>();
+
+    private ResourceSampler sampler;
+    private Path diskPath;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        for (int i = 0; i < serverCount; i++) {
+            Process process = new ProcessBuilder(isWindows() ? List.of("ping", "-n", "3600", "127.0.0.1") : List.of("sleep", "3600")).start();
+            processes.add(process);
+            rootPids.put("server-" + i, process.pid());
+        }
+
+        sampler = new ResourceSampler();
+        diskPath = Path.of(".").toAbsolutePath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processes.forEach(Process::destroyForcibly);
+    }
+
+    @Benchmark
+    public ResourceUsage sampleNode() {
+        return sampler.sampleNode(diskPath);
+    }
+
+    @Benchmark
+    public long sampleNodeWithNewSystemInfo() {
+        GlobalMemory memory = new SystemInfo().getHardware().getMemory();
+        return memory.getTotal() - memory.getAvailable();
+    }
+
+    @Benchmark
+    public Map<String, ResourceUsage> sampleServers() {
+        return sampler.sampleServers(rootPids);
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+}
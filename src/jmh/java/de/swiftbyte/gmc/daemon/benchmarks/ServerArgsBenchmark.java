@@ -0,0 +1,89 @@
+package de.swiftbyte.gmc.daemon.benchmarks;
+
+import de.swiftbyte.gmc.daemon.utils.ServerUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the launch arguments of all servers of a node the way {@code AsaServer.start} does it, from the
+ * question mark and hyphen parameters of the setting profile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerArgsBenchmark {
+
+    private static final List<String> REQUIRED_ARGS_1 = List.of("TheIsland_WP", "listen", "RCONEnabled=True");
+    private static final List<String> REQUIRED_ARGS_2 = List.of("NoBattlEye", "servergamelog", "oldconsole");
+
+    @Param({"1", "32"})
+    private int serverCount;
+
+    @Param({"10", "100"})
+    private int parameterCount;
+
+    private final List<HashMap<String, Object>> questionMarkParams = new ArrayList<>();
+    private final List<HashMap<String, Object>> hyphenParams = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int server = 0; server < serverCount; server++) {
+            HashMap<String, Object> questionMark = new HashMap<>();
+            HashMap<String, Object> hyphen = new HashMap<>();
+            for (int i = 0; i < parameterCount; i++) {
+                // Mix of the value types a setting profile holds
+                Object value = switch (i % 3) {
+                    case 0 -> i % 2 == 0;
+                    case 1 -> 7777 + i;
+                    default -> "Value" + i;
+                };
+                questionMark.put("QuestionMarkParam" + i, value);
+                hyphen.put("HyphenParam" + i, value);
+            }
+            // Overlaps with the required arguments, which the generator filters
+            questionMark.put("RCONEnabled", false);
+            questionMarkParams.add(questionMark);
+            hyphenParams.add(hyphen);
+        }
+    }
+
+    @Benchmark
+    public void generateArgListFromMap(Blackhole blackhole) {
+        for (int i = 0; i < serverCount; i++) {
+            blackhole.consume(ServerUtils.generateArgListFromMap(questionMarkParams.get(i)));
+            blackhole.consume(ServerUtils.generateArgListFromMap(hyphenParams.get(i), false));
+        }
+    }
+
+    @Benchmark
+    public void generateServerArgs(Blackhole blackhole) {
+        for (int i = 0; i < serverCount; i++) {
+            blackhole.consume(ServerUtils.generateServerArgs(
+                    ServerUtils.generateArgListFromMap(questionMarkParams.get(i)),
+                    "?AdditionalParam=True",
+                    ServerUtils.generateArgListFromMap(hyphenParams.get(i), false),
+                    "-additionalflag",
+                    REQUIRED_ARGS_1,
+                    REQUIRED_ARGS_2
+            ));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package de.swiftbyte.gmc.daemon;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
+import de.swiftbyte.gmc.daemon.metrics.PrometheusFileExporter;
+import de.swiftbyte.gmc.daemon.migration.MigratePersistenceFormat;
 import de.swiftbyte.gmc.daemon.migration.MigrateServerInstallDir;
 import de.swiftbyte.gmc.daemon.migration.MigrationScript;
 import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
@@ -36,7 +38,7 @@ import java.util.concurrent.ScheduledExecutorService;
 public class Application {
 
 
-    private static final int MIGRATION_LEVEL = 1;
+    private static final int MIGRATION_LEVEL = 2;
 
 
     public static String getBackendDomain() {
@@ -109,6 +111,7 @@ public class Application {
         }
 
         migrationScripts.put(0, new MigrateServerInstallDir());
+        migrationScripts.put(1, new MigratePersistenceFormat());
 
         SpringApplication.run(Application.class);
     }
@@ -148,6 +151,7 @@ public class Application {
 
         ConfigUtils.store("migrationLevel", MIGRATION_LEVEL);
 
+        PrometheusFileExporter.initialise();
 
         node = new Node();
 
@@ -1,7 +1,6 @@
 package de.swiftbyte.gmc.daemon;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.swiftbyte.gmc.common.entity.NodeSettings;
 import de.swiftbyte.gmc.common.entity.ResourceUsage;
@@ -9,17 +8,28 @@ import de.swiftbyte.gmc.common.model.NodeTask;
 import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeHeartbeatPacket;
 import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeLogoutPacket;
 import de.swiftbyte.gmc.daemon.cache.CacheModel;
+import de.swiftbyte.gmc.daemon.metrics.Metric;
+import de.swiftbyte.gmc.daemon.metrics.MetricsHistory;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
 import de.swiftbyte.gmc.daemon.server.GameServer;
 import de.swiftbyte.gmc.daemon.service.BackupService;
+import de.swiftbyte.gmc.daemon.service.NodeCache;
+import de.swiftbyte.gmc.daemon.service.RconService;
+import de.swiftbyte.gmc.daemon.service.ResourceSampler;
 import de.swiftbyte.gmc.daemon.service.TaskService;
 import de.swiftbyte.gmc.daemon.stomp.StompHandler;
+import de.swiftbyte.gmc.daemon.stomp.StompReconnectManager;
 import de.swiftbyte.gmc.daemon.tasks.consumers.BackupDirectoryChangeTaskConsumer;
 import de.swiftbyte.gmc.daemon.utils.CommonUtils;
 import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
 import de.swiftbyte.gmc.daemon.utils.ConnectionState;
+import de.swiftbyte.gmc.daemon.utils.HeartbeatDeltaEncoder;
+import de.swiftbyte.gmc.daemon.utils.HeartbeatUtils;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
 import de.swiftbyte.gmc.daemon.utils.NodeSettingsUtils;
 import de.swiftbyte.gmc.daemon.utils.NodeUtils;
 import de.swiftbyte.gmc.daemon.utils.PathValidationUtils;
+import de.swiftbyte.gmc.daemon.utils.PersistenceFormat;
 import de.swiftbyte.gmc.daemon.utils.ServerUtils;
 import lombok.Getter;
 import lombok.Setter;
@@ -32,12 +42,14 @@ import okhttp3.Response;
 import org.apache.commons.io.FileUtils;
 import org.jline.terminal.impl.DumbTerminal;
 import org.springframework.shell.component.context.ComponentContext;
-import oshi.SystemInfo;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -53,9 +65,22 @@ public class Node {
 
     private ScheduledExecutorService heartbeatExecutor;
 
+    // Sampling can take long on busy hosts, so it must never delay a heartbeat, which reads the latest samples
+    private ScheduledExecutorService samplerExecutor;
+
+    private final ResourceSampler resourceSampler = new ResourceSampler();
+    private long lastHeartbeatSentAt;
+
+    // Null unless heartbeat-mode is 'delta'
+    private final HeartbeatDeltaEncoder heartbeatDeltaEncoder = "delta".equalsIgnoreCase(ConfigUtils.get("heartbeat-mode", "full"))
+            ? new HeartbeatDeltaEncoder(
+                    ConfigUtils.getInt("heartbeat-keyframe-interval", 30),
+                    ConfigUtils.getInt("heartbeat-delta-cpu-step", 5),
+                    ConfigUtils.getInt("heartbeat-delta-memory-step-mb", 64))
+            : null;
+
     @Setter
     private String nodeName;
-    @Setter
     private String teamName;
 
     private String serverPath;
@@ -63,7 +88,6 @@ public class Node {
     // Track current valid default server directory for rollback
     private Path defaultServerDirectory;
 
-    @Setter
     private Path backupPath;
     private boolean manageFirewallAutomatically;
 
@@ -97,8 +121,20 @@ public class Node {
         BackupService.initialiseBackupService();
         NodeUtils.checkInstallation();
 
+        samplerExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("resource-sampler").daemon().factory());
+        samplerExecutor.scheduleWithFixedDelay(this::sampleResources, 0, ConfigUtils.getInt("metrics-sample-interval-seconds", 5), TimeUnit.SECONDS);
+
         heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
         heartbeatExecutor.scheduleWithFixedDelay(updateRunnable, 0, 10, TimeUnit.SECONDS);
+
+        registerGauges();
+    }
+
+    private void registerGauges() {
+        MetricsRegistry.gauge("gmc_game_servers", "Game servers managed by this node.", () -> GameServer.getAllServers().size());
+        MetricsRegistry.gauge("gmc_resource_sample_seconds", "Duration of the last resource sample of all game servers.", () -> resourceSampler.getLastSampleNanos() / 1e9);
+        MetricsRegistry.gauge("gmc_resource_sample_max_seconds", "Longest resource sample of all game servers.", () -> resourceSampler.getMaxSampleNanos() / 1e9);
+        MetricsRegistry.gauge("gmc_resource_sample_budget_exceeded", "Resource samples that exceeded their time budget.", resourceSampler::getBudgetExceeded);
     }
 
     private void getCachedNodeInformation() {
@@ -108,33 +144,26 @@ public class Node {
         nodeId = ConfigUtils.get("node.id", "dummy");
         secret = ConfigUtils.get("node.secret", "dummy");
 
-        File cacheFile = new File("./cache.json");
+        CacheModel cacheModel = NodeCache.getCacheModel();
 
-        if (!cacheFile.exists()) {
-            log.debug("No cache file found. Skipping...");
+        if (cacheModel == null) {
             return;
         }
 
-        try {
-            CacheModel cacheModel = CommonUtils.getObjectReader().readValue(new File("./cache.json"), CacheModel.class);
-            nodeName = cacheModel.getNodeName();
-            teamName = cacheModel.getTeamName();
-            setServerPath(cacheModel.getServerPath());
-            if (cacheModel.getDefaultServerDirectory() != null) {
-                this.defaultServerDirectory = Path.of(PathValidationUtils.canonicalizeOrAbsolute(cacheModel.getDefaultServerDirectory())).normalize();
-            }
-
-            if (cacheModel.getBackupPath() != null) {
-                backupPath = Path.of(cacheModel.getBackupPath()).normalize();
-            }
-            isAutoUpdateEnabled = cacheModel.isAutoUpdateEnabled();
-            manageFirewallAutomatically = cacheModel.isManageFirewallAutomatically();
-
-            log.debug("Got cached information.");
+        nodeName = cacheModel.getNodeName();
+        teamName = cacheModel.getTeamName();
+        setServerPath(cacheModel.getServerPath());
+        if (cacheModel.getDefaultServerDirectory() != null) {
+            this.defaultServerDirectory = Path.of(PathValidationUtils.canonicalizeOrAbsolute(cacheModel.getDefaultServerDirectory())).normalize();
+        }
 
-        } catch (IOException e) {
-            log.error("An unknown error occurred while getting cached information.", e);
+        if (cacheModel.getBackupPath() != null) {
+            backupPath = Path.of(cacheModel.getBackupPath()).normalize();
         }
+        isAutoUpdateEnabled = cacheModel.isAutoUpdateEnabled();
+        manageFirewallAutomatically = cacheModel.isManageFirewallAutomatically();
+
+        log.debug("Got cached information.");
     }
 
     public void shutdown() {
@@ -145,8 +174,9 @@ public class Node {
         NodeLogoutPacket logoutPacket = new NodeLogoutPacket();
         logoutPacket.setReason("Terminated by user");
         log.debug("Sending shutdown packet...");
-        StompHandler.send("/app/node/logout", logoutPacket);
+        StompHandler.sendVolatile("/app/node/logout", logoutPacket);
         log.info("Disconnecting from backend...");
+        RconService.closeAllSessions();
         log.debug("Deleting temporary files...");
         try {
             FileUtils.deleteDirectory(new File(NodeUtils.TMP_PATH));
@@ -154,7 +184,7 @@ public class Node {
             log.warn("An error occurred while deleting the temporary directory.");
         }
         log.debug("Caching information...");
-        NodeUtils.cacheInformation(this);
+        NodeCache.flush();
     }
 
     public void joinTeam() {
@@ -209,13 +239,12 @@ public class Node {
         OkHttpClient client = new OkHttpClient();
 
         String defaultServerDirectory = PathValidationUtils.canonicalizeOrAbsolute("./servers");
-        ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-        ObjectNode jsonNode = mapper.createObjectNode();
+        ObjectNode jsonNode = MapperUtils.getMapper().createObjectNode();
         jsonNode.put("inviteToken", String.valueOf(token));
         jsonNode.put("defaultServerDirectory", defaultServerDirectory);
         String json;
         try {
-            json = mapper.writeValueAsString(jsonNode);
+            json = MapperUtils.getMapper().writeValueAsString(jsonNode);
         } catch (Exception e) {
             log.error("Failed to create registration payload.", e);
             setConnectionState(ConnectionState.NOT_JOINED);
@@ -237,8 +266,7 @@ public class Node {
                 return;
             }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode responseJson = objectMapper.readTree(response.body().string());
+            JsonNode responseJson = MapperUtils.getMapper().readTree(response.body().string());
             nodeId = responseJson.get("nodeId").asText();
             secret = responseJson.get("nodeSecret").asText();
 
@@ -261,15 +289,15 @@ public class Node {
     public void connect() {
 
         if (getConnectionState() == ConnectionState.RECONNECTING) {
-            log.info("Reconnecting to backend...");
             // Re-establish STOMP connection only; keep TaskService running to avoid interrupting tasks
-            StompHandler.initialiseStomp();
+            StompReconnectManager.requestReconnect();
         } else {
             log.info("Connecting to backend...");
             setConnectionState(ConnectionState.CONNECTING);
             if (!StompHandler.initialiseStomp()) {
                 setConnectionState(ConnectionState.RECONNECTING);
                 ServerUtils.getCachedServerInformation();
+                StompReconnectManager.requestReconnect();
             }
             TaskService.initializeTaskService();
         }
@@ -334,7 +362,7 @@ public class Node {
         manageFirewallAutomatically = nodeSettings.isManageFirewallAutomatically();
 
         // Persist updated backup path to cache so cache gets backfilled from backend when previously null
-        NodeUtils.cacheInformation(this);
+        NodeCache.markNodeDirty();
 
         // Move backups only when backup directory actually changes
         if (!currentBackupPath.equals(newBackupPath)) {
@@ -372,16 +400,20 @@ public class Node {
             FileUtils.deleteDirectory(new File(NodeUtils.STEAM_CMD_DIR));
             FileUtils.deleteDirectory(new File("logs"));
 
-            try {
-                FileUtils.delete(new File("cache.json"));
-            } catch (Exception e) {
-                log.debug("Could not delete cache.json directory.", e);
+            for (PersistenceFormat format : PersistenceFormat.values()) {
+                for (Path stateFile : List.of(format.resolve("./cache"), format.resolve("./backups"))) {
+                    try {
+                        Files.deleteIfExists(stateFile);
+                    } catch (Exception e) {
+                        log.debug("Could not delete {}.", stateFile, e);
+                    }
+                }
             }
 
             try {
-                FileUtils.delete(new File("backups.json"));
+                Files.deleteIfExists(Path.of("./backups.journal"));
             } catch (Exception e) {
-                log.debug("Could not delete backups.json directory.", e);
+                log.debug("Could not delete backups.journal.", e);
             }
             ConfigUtils.remove("node.id");
             ConfigUtils.remove("node.secret");
@@ -408,13 +440,16 @@ public class Node {
             lastUpdate = System.currentTimeMillis();
             if (getConnectionState() == ConnectionState.CONNECTED) {
 
-                NodeUtils.cacheInformation(this);
-
                 NodeHeartbeatPacket heartbeatPacket = getNodeHeartbeatPacket();
 
-                StompHandler.sendNonCritical("/app/node/heartbeat", heartbeatPacket);
-
-                BackupService.deleteAllExpiredBackups();
+                if (heartbeatDeltaEncoder == null) {
+                    StompHandler.sendNonCritical("/app/node/heartbeat", heartbeatPacket);
+                } else {
+                    // Keyframes keep the full heartbeat semantics, deltas only list servers that changed
+                    HeartbeatDeltaEncoder.Frame frame = heartbeatDeltaEncoder.encode(heartbeatPacket.getGameServers());
+                    heartbeatPacket.setGameServers(frame.updates());
+                    StompHandler.sendNonCritical(frame.keyframe() ? "/app/node/heartbeat" : "/app/node/heartbeat/delta", null, heartbeatPacket, () -> heartbeatDeltaEncoder.acknowledge(frame));
+                }
             } else if (getConnectionState() == ConnectionState.RECONNECTING) {
                 connect();
             }
@@ -429,36 +464,57 @@ public class Node {
         }
         heartbeatExecutor.shutdown();
         heartbeatExecutor = null;
+
+        samplerExecutor.shutdown();
+        samplerExecutor = null;
     }
 
-    private static NodeHeartbeatPacket getNodeHeartbeatPacket() {
-        SystemInfo systemInfo = new SystemInfo();
-        NodeHeartbeatPacket heartbeatPacket = new NodeHeartbeatPacket();
-
-        ResourceUsage resourceUsage = new ResourceUsage();
-        resourceUsage.setRamBytes((systemInfo.getHardware().getMemory().getTotal() - systemInfo.getHardware().getMemory().getAvailable()) / (1024 * 1024));
-        resourceUsage.setCpuPercentage(-1);
-        resourceUsage.setCpuPercentage(-1);
-        resourceUsage.setDiskBytes(-1);
-        heartbeatPacket.setResourceUsage(resourceUsage);
-
-
-        ArrayList<NodeHeartbeatPacket.GameServerUpdate> gameServerUpdates = new ArrayList<>();
-        for (GameServer server : GameServer.getAllServers()) {
-            NodeHeartbeatPacket.GameServerUpdate gameServerUpdate = new NodeHeartbeatPacket.GameServerUpdate();
-            gameServerUpdate.setState(server.getState());
-            gameServerUpdate.setId(server.getServerId());
-            gameServerUpdate.setPlayerCount(server.getCurrentOnlinePlayers());
-            gameServerUpdate.setResourceUsage(new ResourceUsage());
-            gameServerUpdates.add(gameServerUpdate);
+    private void sampleResources() {
+        try {
+            recordUsage(MetricsHistory.NODE, resourceSampler.sampleNode(Path.of(serverPath).toAbsolutePath()));
+
+            List<GameServer> servers = GameServer.getAllServers();
+            HashMap<String, Long> rootPids = HashMap.newHashMap(servers.size());
+            for (GameServer server : servers) {
+                String pid = server.getPID();
+                rootPids.put(server.getServerId(), pid != null ? Long.valueOf(pid) : null);
+            }
+
+            Map<String, ResourceUsage> serverUsages = resourceSampler.sampleServers(rootPids);
+            for (GameServer server : servers) {
+                recordUsage(server.getServerId(), serverUsages.get(server.getServerId()));
+                MetricsHistory.record(server.getServerId(), Metric.PLAYERS, server.getCurrentOnlinePlayers());
+            }
+            MetricsHistory.retainServers(rootPids.keySet());
+        } catch (Exception e) {
+            log.error("Unhandled exception while sampling resources.", e);
         }
-        heartbeatPacket.setGameServers(gameServerUpdates);
-        return heartbeatPacket;
+    }
+
+    private static void recordUsage(String owner, ResourceUsage usage) {
+        MetricsHistory.record(owner, Metric.CPU, usage.getCpuPercentage());
+        MetricsHistory.record(owner, Metric.RAM, usage.getRamBytes());
+        MetricsHistory.record(owner, Metric.DISK, usage.getDiskBytes());
+    }
+
+    private NodeHeartbeatPacket getNodeHeartbeatPacket() {
+        long since = lastHeartbeatSentAt;
+        lastHeartbeatSentAt = System.currentTimeMillis();
+
+        List<HeartbeatUtils.ServerStatus> servers = GameServer.getAllServers().stream()
+                .map(server -> new HeartbeatUtils.ServerStatus(server.getServerId(), server.getState(), server.getCurrentOnlinePlayers()))
+                .toList();
+        return HeartbeatUtils.buildHeartbeatPacket(servers, since);
     }
 
     public synchronized void setConnectionState(ConnectionState connectionState) {
         log.debug("Connection state changed from {} to {}", this.connectionState, connectionState);
         this.connectionState = connectionState;
+
+        // The backend may have lost the delta baseline with the connection
+        if (connectionState != ConnectionState.CONNECTED && heartbeatDeltaEncoder != null) {
+            heartbeatDeltaEncoder.reset();
+        }
     }
 
     public synchronized ConnectionState getConnectionState() {
@@ -469,6 +525,16 @@ public class Node {
         this.serverPath = Path.of(serverPath).normalize().toString();
     }
 
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+        NodeCache.markNodeDirty();
+    }
+
+    public void setBackupPath(Path backupPath) {
+        this.backupPath = backupPath;
+        NodeCache.markNodeDirty();
+    }
+
     public String getBackupPath() {
         return backupPath != null
                 ? backupPath.normalize().toString()
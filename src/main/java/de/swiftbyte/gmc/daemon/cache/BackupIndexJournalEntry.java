@@ -0,0 +1,40 @@
+package de.swiftbyte.gmc.daemon.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BackupIndexJournalEntry {
+
+    private Operation operation;
+
+    // Set for RECORDED and SERVER_REMOVED
+    private String serverId;
+
+    // Set for RECORDED
+    private String backupId;
+    private HashMap<String, BackupIndexModel.FileFingerprint> files;
+    private String parentBackupId;
+    private List<String> deletedFiles;
+
+    // Set for BACKUPS_REMOVED
+    private List<String> backupIds;
+
+    public enum Operation {
+        RECORDED,
+        BACKUPS_REMOVED,
+        SERVER_REMOVED
+    }
+}
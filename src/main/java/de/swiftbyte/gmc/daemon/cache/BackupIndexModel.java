@@ -0,0 +1,66 @@
+package de.swiftbyte.gmc.daemon.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BackupIndexModel {
+
+    // Save directory state per server id
+    @Builder.Default
+    private HashMap<String, ServerFingerprint> servers = new HashMap<>();
+
+    // Parent chain per backup id, the common Backup entity has no room for it
+    @Builder.Default
+    private HashMap<String, BackupChainEntry> chain = new HashMap<>();
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ServerFingerprint {
+
+        private String lastFullBackupId;
+        private int backupsSinceFull;
+
+        // Files as they were in the last full backup and in the last backup of any kind
+        private HashMap<String, FileFingerprint> fullBackupFiles;
+        private HashMap<String, FileFingerprint> lastBackupFiles;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class FileFingerprint {
+
+        private long size;
+        private long lastModified;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class BackupChainEntry {
+
+        // Null for full backups
+        private String parentBackupId;
+
+        // Files of the parent that no longer existed when the incremental backup was taken
+        private List<String> deletedFiles;
+    }
+}
@@ -0,0 +1,31 @@
+package de.swiftbyte.gmc.daemon.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.swiftbyte.gmc.common.entity.Backup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BackupJournalEntry {
+
+    private Operation operation;
+
+    // Set for CREATED
+    private Backup backup;
+
+    // Set for DELETED
+    private String backupId;
+
+    public enum Operation {
+        CREATED,
+        DELETED
+    }
+}
@@ -0,0 +1,37 @@
+package de.swiftbyte.gmc.daemon.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BackupManifest {
+
+    private String backupId;
+    private String serverId;
+
+    private List<ManifestFile> files;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ManifestFile {
+
+        private String name;
+        private long size;
+        private long lastModified;
+
+        // SHA-256 of the uncompressed chunks, in file order
+        private List<String> chunks;
+    }
+}
@@ -0,0 +1,24 @@
+package de.swiftbyte.gmc.daemon.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OutboxEntry {
+
+    private String destination;
+
+    // Entries with the same destination and key supersede each other, null if the packet is never superseded
+    private String key;
+
+    private String payloadType;
+    private JsonNode payload;
+}
@@ -0,0 +1,89 @@
+package de.swiftbyte.gmc.daemon.commands;
+
+import de.swiftbyte.gmc.daemon.metrics.Counter;
+import de.swiftbyte.gmc.daemon.metrics.Gauge;
+import de.swiftbyte.gmc.daemon.metrics.Histogram;
+import de.swiftbyte.gmc.daemon.metrics.Meter;
+import de.swiftbyte.gmc.daemon.metrics.Metric;
+import de.swiftbyte.gmc.daemon.metrics.MetricsHistory;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Resolution;
+import de.swiftbyte.gmc.daemon.metrics.TimeSeries;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import de.swiftbyte.gmc.daemon.server.GameServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+@Command
+@Slf4j
+public class MetricsCommands {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    @Command(command = "history", description = "Show the recorded history of a node or server metric.", group = "Daemon Management")
+    public String historyCommand(@Option(description = "The server id, the node if omitted") String serverId,
+                                 @Option(description = "cpu, ram, disk, players, rcon-latency or tick-duration", defaultValue = "cpu") String metric,
+                                 @Option(description = "raw, minute or hour", defaultValue = "minute") String resolution,
+                                 @Option(description = "The number of entries", defaultValue = "30") int limit) {
+
+        String owner = serverId != null ? serverId : MetricsHistory.NODE;
+        if (serverId != null && GameServer.getServerById(serverId) == null) {
+            return "Server with id " + serverId + " not found!";
+        }
+
+        Metric parsedMetric;
+        Resolution parsedResolution;
+        try {
+            parsedMetric = Metric.fromDisplayName(metric);
+            parsedResolution = Resolution.fromDisplayName(resolution);
+        } catch (IllegalArgumentException e) {
+            return "Unknown metric or resolution. Metrics: " + Arrays.stream(Metric.values()).map(Metric::getDisplayName).toList() + ", resolutions: raw, minute, hour.";
+        }
+
+        List<TimeSeries.Bucket> buckets = MetricsHistory.getBuckets(owner, parsedMetric, parsedResolution, limit);
+        if (buckets.isEmpty()) {
+            return "No " + parsedMetric.getDisplayName() + " history recorded yet.";
+        }
+
+        StringBuilder history = new StringBuilder();
+        history.append(String.format(Locale.ROOT, "%-19s %10s %10s %10s  (%s)%n", "time", "min", "mean", "max", parsedMetric.getUnit().isEmpty() ? parsedMetric.getDisplayName() : parsedMetric.getUnit()));
+        for (TimeSeries.Bucket bucket : buckets) {
+            history.append(String.format(Locale.ROOT, "%-19s %10.1f %10.1f %10.1f%n", TIME_FORMAT.format(Instant.ofEpochMilli(bucket.timestamp())), bucket.min(), bucket.mean(), bucket.max()));
+        }
+        return history.toString();
+    }
+
+    @Command(command = "metrics", description = "Show the counters, timers and gauges of the daemon.", group = "Daemon Management")
+    public String metricsCommand(@Option(description = "Only show metrics whose name contains this text") String filter) {
+
+        List<Meter> meters = MetricsRegistry.getMeters().stream()
+                .filter(meter -> filter == null || meter.getId().name().contains(filter))
+                .toList();
+        if (meters.isEmpty()) {
+            return "No metrics recorded yet.";
+        }
+
+        StringBuilder metrics = new StringBuilder();
+        for (Meter meter : meters) {
+            metrics.append(String.format(Locale.ROOT, "%-60s ", meter.getId()));
+            switch (meter) {
+                case Counter counter -> metrics.append(counter.getValue());
+                case Gauge gauge -> metrics.append(String.format(Locale.ROOT, "%.3f", gauge.getValue()));
+                case Histogram histogram -> metrics.append(String.format(Locale.ROOT, "count=%d mean=%.1f",
+                        histogram.getCount(), histogram.getCount() == 0 ? 0 : histogram.getSum() / histogram.getCount()));
+                case Timer timer -> metrics.append(String.format(Locale.ROOT, "count=%d mean=%.1fms max=%.1fms",
+                        timer.getCount(), timer.getCount() == 0 ? 0 : timer.getTotalNanos() / 1e6 / timer.getCount(), timer.getMaxNanos() / 1e6));
+            }
+            metrics.append(System.lineSeparator());
+        }
+        return metrics.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Counter implements Meter {
+
+    @Getter
+    private final MeterId id;
+    private final LongAdder value = new LongAdder();
+
+    Counter(MeterId id) {
+        this.id = id;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void increment(long amount) {
+        value.add(amount);
+    }
+
+    public long getValue() {
+        return value.sum();
+    }
+}
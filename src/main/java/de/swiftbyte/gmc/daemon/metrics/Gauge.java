@@ -0,0 +1,28 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import lombok.Getter;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value that is read from its owner whenever the metrics are displayed or exported.
+ */
+public final class Gauge implements Meter {
+
+    @Getter
+    private final MeterId id;
+    private final DoubleSupplier supplier;
+
+    Gauge(MeterId id, DoubleSupplier supplier) {
+        this.id = id;
+        this.supplier = supplier;
+    }
+
+    public double getValue() {
+        try {
+            return supplier.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+}
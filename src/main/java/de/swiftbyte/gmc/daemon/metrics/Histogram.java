@@ -0,0 +1,60 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts values into fixed buckets. Bounds are inclusive upper bounds, values above the last bound only count
+ * towards the total.
+ */
+public final class Histogram implements Meter {
+
+    @Getter
+    private final MeterId id;
+    @Getter
+    private final double[] bounds;
+
+    // One more than bounds for values above the last bound
+    private final LongAdder[] buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+    private final LongAdder count = new LongAdder();
+
+    Histogram(MeterId id, double[] bounds) {
+        this.id = id;
+        this.bounds = bounds.clone();
+        Arrays.sort(this.bounds);
+        this.buckets = new LongAdder[this.bounds.length + 1];
+        Arrays.setAll(buckets, _ -> new LongAdder());
+    }
+
+    public void record(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        buckets[index >= 0 ? index : -index - 1].increment();
+        sum.add(value);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the number of values up to each bound, as exported to Prometheus.
+     */
+    public long[] getCumulativeCounts() {
+        long[] cumulative = new long[bounds.length];
+        long total = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            total += buckets[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,6 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+public sealed interface Meter permits Counter, Gauge, Histogram, Timer {
+
+    MeterId getId();
+}
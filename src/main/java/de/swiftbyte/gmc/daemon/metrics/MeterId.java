@@ -0,0 +1,34 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+/**
+ * Name, help text and rendered labels of a meter, e.g. {@code phase="compress"}.
+ */
+public record MeterId(String name, String help, String labels) {
+
+    static MeterId of(String name, String help, String... labelPairs) {
+        if (labelPairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name/value pairs.");
+        }
+
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < labelPairs.length; i += 2) {
+            if (!labels.isEmpty()) {
+                labels.append(',');
+            }
+            labels.append(labelPairs[i]).append("=\"")
+                    .append(labelPairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return new MeterId(name, help, labels.toString());
+    }
+
+    // Keeps meters of the same name next to each other when sorted
+    String sortKey() {
+        return name + '\0' + labels;
+    }
+
+    @Override
+    public String toString() {
+        return labels.isEmpty() ? name : name + "{" + labels + "}";
+    }
+}
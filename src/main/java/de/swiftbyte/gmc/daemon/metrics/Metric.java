@@ -0,0 +1,33 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * The metrics kept by {@link MetricsHistory}. {@link #DISK} is the used disk space for the node and the disk IO since
+ * the previous sample for game servers, matching {@code ResourceUsage.diskBytes} in the heartbeat.
+ */
+@Getter
+public enum Metric {
+    CPU("%"),
+    RAM("MB"),
+    DISK("MB"),
+    PLAYERS(""),
+    RCON_LATENCY("ms"),
+    TICK_DURATION("ms");
+
+    private final String unit;
+
+    Metric(String unit) {
+        this.unit = unit;
+    }
+
+    public String getDisplayName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public static Metric fromDisplayName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
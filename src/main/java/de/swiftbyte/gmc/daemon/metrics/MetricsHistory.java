@@ -0,0 +1,89 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the recent history of the node and game server metrics in memory.
+ * <p>
+ * Every metric of every owner is kept in one {@link TimeSeries} per {@link Resolution}, so the memory needed per
+ * metric is fixed. Series are created on first use and removed together with their game server.
+ */
+public class MetricsHistory {
+
+    public static final String NODE = "node";
+
+    private static final ConcurrentHashMap<String, EnumMap<Metric, TimeSeries[]>> SERIES = new ConcurrentHashMap<>();
+
+    public static void record(String owner, Metric metric, double value) {
+        record(owner, metric, System.currentTimeMillis(), value);
+    }
+
+    public static void record(String owner, Metric metric, long timestampMillis, double value) {
+        for (TimeSeries series : getSeries(owner, metric)) {
+            series.record(timestampMillis, value);
+        }
+    }
+
+    public static List<TimeSeries.Bucket> getBuckets(String owner, Metric metric, Resolution resolution, int limit) {
+        TimeSeries[] series = findSeries(owner, metric);
+        return series == null ? List.of() : series[resolution.ordinal()].getBuckets(limit);
+    }
+
+    /**
+     * Combines all values recorded since the given time, using the finest resolution that still covers it.
+     */
+    public static TimeSeries.Summary summarize(String owner, Metric metric, long sinceMillis) {
+        TimeSeries[] series = findSeries(owner, metric);
+        if (series == null) {
+            return TimeSeries.Summary.EMPTY;
+        }
+
+        for (TimeSeries candidate : series) {
+            if (candidate.covers(sinceMillis)) {
+                return candidate.summarize(sinceMillis);
+            }
+        }
+        return series[series.length - 1].summarize(sinceMillis);
+    }
+
+    /**
+     * Drops the history of all game servers that are not in the given collection.
+     */
+    public static void retainServers(Collection<String> serverIds) {
+        SERIES.keySet().removeIf(owner -> !owner.equals(NODE) && !serverIds.contains(owner));
+    }
+
+    public static boolean hasHistory(String owner) {
+        return SERIES.containsKey(owner);
+    }
+
+    private static TimeSeries[] findSeries(String owner, Metric metric) {
+        Map<Metric, TimeSeries[]> metrics = SERIES.get(owner);
+        if (metrics == null) {
+            return null;
+        }
+        synchronized (metrics) {
+            return metrics.get(metric);
+        }
+    }
+
+    private static TimeSeries[] getSeries(String owner, Metric metric) {
+        EnumMap<Metric, TimeSeries[]> metrics = SERIES.computeIfAbsent(owner, _ -> new EnumMap<>(Metric.class));
+        synchronized (metrics) {
+            return metrics.computeIfAbsent(metric, _ -> createSeries());
+        }
+    }
+
+    private static TimeSeries[] createSeries() {
+        Resolution[] resolutions = Resolution.values();
+        TimeSeries[] series = new TimeSeries[resolutions.length];
+        for (Resolution resolution : resolutions) {
+            series[resolution.ordinal()] = new TimeSeries(resolution.getBucketMillis(), resolution.getCapacity());
+        }
+        return series;
+    }
+}
@@ -0,0 +1,122 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Holds all counters, timers, histograms and gauges of the daemon. Meters are created on first use and looked up by
+ * name and labels afterwards, so hot paths should keep a reference instead of looking them up on every call.
+ */
+public class MetricsRegistry {
+
+    private static final ConcurrentSkipListMap<String, Meter> METERS = new ConcurrentSkipListMap<>();
+
+    public static Counter counter(String name, String help, String... labelPairs) {
+        return register(MeterId.of(name, help, labelPairs), Counter::new, Counter.class);
+    }
+
+    public static Timer timer(String name, String help, String... labelPairs) {
+        return register(MeterId.of(name, help, labelPairs), Timer::new, Timer.class);
+    }
+
+    public static Histogram histogram(String name, String help, double[] bounds, String... labelPairs) {
+        return register(MeterId.of(name, help, labelPairs), id -> new Histogram(id, bounds), Histogram.class);
+    }
+
+    public static Gauge gauge(String name, String help, DoubleSupplier supplier, String... labelPairs) {
+        return register(MeterId.of(name, help, labelPairs), id -> new Gauge(id, supplier), Gauge.class);
+    }
+
+    public static List<Meter> getMeters() {
+        return new ArrayList<>(METERS.values());
+    }
+
+    /**
+     * Writes all meters in the Prometheus text exposition format. Timers are exported as histograms in seconds,
+     * followed by a separate {@code _max} gauge family.
+     */
+    public static void writePrometheus(Appendable out) throws IOException {
+        List<Meter> meters = getMeters();
+
+        String previousName = null;
+        for (Meter meter : meters) {
+            MeterId id = meter.getId();
+            if (!id.name().equals(previousName)) {
+                previousName = id.name();
+                header(out, id.name(), id.help(), switch (meter) {
+                    case Counter _ -> "counter";
+                    case Gauge _ -> "gauge";
+                    case Histogram _, Timer _ -> "histogram";
+                });
+            }
+
+            switch (meter) {
+                case Counter counter -> sample(out, id.name(), id.labels(), counter.getValue());
+                case Gauge gauge -> sample(out, id.name(), id.labels(), gauge.getValue());
+                case Histogram histogram -> writeHistogram(out, histogram);
+                case Timer timer -> writeHistogram(out, timer.getHistogram());
+            }
+        }
+
+        previousName = null;
+        for (Meter meter : meters) {
+            if (meter instanceof Timer timer) {
+                MeterId id = timer.getId();
+                if (!id.name().equals(previousName)) {
+                    previousName = id.name();
+                    header(out, id.name() + "_max", "Maximum of " + id.name() + ".", "gauge");
+                }
+                sample(out, id.name() + "_max", id.labels(), timer.getMaxNanos() / 1e9);
+            }
+        }
+    }
+
+    private static void header(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeHistogram(Appendable out, Histogram histogram) throws IOException {
+        MeterId id = histogram.getId();
+        String separator = id.labels().isEmpty() ? "" : id.labels() + ",";
+
+        double[] bounds = histogram.getBounds();
+        long[] cumulative = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sample(out, id.name() + "_bucket", separator + "le=\"" + format(bounds[i]) + "\"", cumulative[i]);
+        }
+        sample(out, id.name() + "_bucket", separator + "le=\"+Inf\"", histogram.getCount());
+        sample(out, id.name() + "_sum", id.labels(), histogram.getSum());
+        sample(out, id.name() + "_count", id.labels(), histogram.getCount());
+    }
+
+    private static void sample(Appendable out, String name, String labels, double value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == (long) value) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static <T extends Meter> T register(MeterId id, Function<MeterId, T> factory, Class<T> type) {
+        Meter meter = METERS.computeIfAbsent(id.sortKey(), _ -> factory.apply(id));
+        if (!type.isInstance(meter)) {
+            throw new IllegalArgumentException("Meter '" + id + "' is already registered as " + meter.getClass().getSimpleName() + ".");
+        }
+        return type.cast(meter);
+    }
+}
@@ -0,0 +1,45 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import de.swiftbyte.gmc.daemon.Application;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import de.swiftbyte.gmc.daemon.utils.PersistenceUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes all metrics in the Prometheus text format to {@code metrics-prometheus-file}, e.g. for the
+ * textfile collector of the node exporter. Disabled unless the file is configured.
+ */
+@Slf4j
+public class PrometheusFileExporter {
+
+    public static void initialise() {
+        String file = ConfigUtils.get("metrics-prometheus-file", "");
+        if (file.isBlank()) {
+            return;
+        }
+
+        Path target = Path.of(file).toAbsolutePath();
+        int interval = Math.max(1, ConfigUtils.getInt("metrics-prometheus-interval-seconds", 15));
+        log.info("Exporting metrics to '{}' every {} seconds.", target, interval);
+        Application.getExecutor().scheduleWithFixedDelay(() -> export(target), interval, interval, TimeUnit.SECONDS);
+    }
+
+    private static void export(Path target) {
+        try {
+            PersistenceUtils.writeAtomically(target, out -> {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                MetricsRegistry.writePrometheus(writer);
+                writer.flush();
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to export metrics to '{}'.", target, e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * The resolutions every metric is kept at. Each value is recorded into all of them, so the coarser ones are
+ * downsampled as the values arrive.
+ */
+@Getter
+public enum Resolution {
+    // One bucket per sample, half an hour at the default interval
+    RAW(360),
+    // One day
+    MINUTE(1440),
+    // One week
+    HOUR(168);
+
+    private final int capacity;
+
+    Resolution(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public long getBucketMillis() {
+        return switch (this) {
+            case RAW -> ConfigUtils.getInt("metrics-sample-interval-seconds", 5) * 1000L;
+            case MINUTE -> 60_000L;
+            case HOUR -> 3_600_000L;
+        };
+    }
+
+    public static Resolution fromDisplayName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,31 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import jdk.jfr.Event;
+
+/**
+ * Times a block into a {@link Timer} and the matching JFR event at once. Fields of the event can be set until the
+ * span is closed.
+ */
+public final class Span implements AutoCloseable {
+
+    private final Timer timer;
+    private final Event event;
+    private final long start;
+
+    private Span(Timer timer, Event event) {
+        this.timer = timer;
+        this.event = event;
+        event.begin();
+        this.start = System.nanoTime();
+    }
+
+    public static Span start(Timer timer, Event event) {
+        return new Span(timer, event);
+    }
+
+    @Override
+    public void close() {
+        timer.record(System.nanoTime() - start);
+        event.commit();
+    }
+}
@@ -0,0 +1,133 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of aggregated buckets for one metric at one resolution.
+ * <p>
+ * Every recorded value is folded into the bucket of its timestamp, so only min, max, sum and count are kept per
+ * bucket. Buckets without values are not stored, and once the ring is full the oldest bucket is overwritten. All
+ * arrays are allocated up front, so the footprint does not grow however long the daemon runs.
+ */
+public class TimeSeries {
+
+    private final long resolutionMillis;
+
+    private final long[] bucketStart;
+    private final float[] min;
+    private final float[] max;
+    private final double[] sum;
+    private final int[] count;
+
+    // Index of the newest bucket
+    private int head = -1;
+    private int size;
+    private double lastValue = Double.NaN;
+
+    public TimeSeries(long resolutionMillis, int capacity) {
+        this.resolutionMillis = resolutionMillis;
+        this.bucketStart = new long[capacity];
+        this.min = new float[capacity];
+        this.max = new float[capacity];
+        this.sum = new double[capacity];
+        this.count = new int[capacity];
+    }
+
+    public synchronized void record(long timestampMillis, double value) {
+        long bucket = timestampMillis - Math.floorMod(timestampMillis, resolutionMillis);
+
+        if (size == 0 || bucket > bucketStart[head]) {
+            head = (head + 1) % bucketStart.length;
+            size = Math.min(size + 1, bucketStart.length);
+            bucketStart[head] = bucket;
+            min[head] = (float) value;
+            max[head] = (float) value;
+            sum[head] = value;
+            count[head] = 1;
+            lastValue = value;
+            return;
+        }
+
+        // Values may arrive late, e.g. RCON commands that complete after the next sample
+        for (int i = 0, index = head; i < size; i++, index = previous(index)) {
+            if (bucketStart[index] == bucket) {
+                min[index] = Math.min(min[index], (float) value);
+                max[index] = Math.max(max[index], (float) value);
+                sum[index] += value;
+                count[index]++;
+                if (index == head) {
+                    lastValue = value;
+                }
+                return;
+            }
+            if (bucketStart[index] < bucket) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the ring still holds buckets from the given time on, i.e. nothing newer was overwritten.
+     */
+    public synchronized boolean covers(long sinceMillis) {
+        if (size < bucketStart.length) {
+            return true;
+        }
+        return bucketStart[(head + 1) % bucketStart.length] <= sinceMillis;
+    }
+
+    /**
+     * Returns up to {@code limit} of the newest buckets, oldest first.
+     */
+    public synchronized List<Bucket> getBuckets(int limit) {
+        int n = Math.min(limit, size);
+        ArrayList<Bucket> buckets = new ArrayList<>(n);
+        int index = Math.floorMod(head - n + 1, bucketStart.length);
+        for (int i = 0; i < n; i++, index = (index + 1) % bucketStart.length) {
+            buckets.add(new Bucket(bucketStart[index], min[index], max[index], sum[index] / count[index], sum[index], count[index]));
+        }
+        return buckets;
+    }
+
+    /**
+     * Combines all buckets that contain values from the given time on.
+     */
+    public synchronized Summary summarize(long sinceMillis) {
+        double summaryMin = Double.POSITIVE_INFINITY;
+        double summaryMax = Double.NEGATIVE_INFINITY;
+        double summarySum = 0;
+        long summaryCount = 0;
+
+        for (int i = 0, index = head; i < size; i++, index = previous(index)) {
+            if (bucketStart[index] + resolutionMillis <= sinceMillis) {
+                break;
+            }
+            summaryMin = Math.min(summaryMin, min[index]);
+            summaryMax = Math.max(summaryMax, max[index]);
+            summarySum += sum[index];
+            summaryCount += count[index];
+        }
+
+        if (summaryCount == 0) {
+            return Summary.EMPTY;
+        }
+        return new Summary(summaryMin, summaryMax, summarySum / summaryCount, summarySum, summaryCount, lastValue);
+    }
+
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    private int previous(int index) {
+        return index == 0 ? bucketStart.length - 1 : index - 1;
+    }
+
+    public record Bucket(long timestamp, double min, double max, double mean, double sum, int count) {
+    }
+
+    public record Summary(double min, double max, double mean, double sum, long count, double last) {
+
+        public static final Summary EMPTY = new Summary(0, 0, 0, 0, 0, 0);
+    }
+}
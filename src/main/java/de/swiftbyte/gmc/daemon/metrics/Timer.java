@@ -0,0 +1,50 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations into a histogram in seconds and additionally keeps the exact total and maximum.
+ */
+public final class Timer implements Meter {
+
+    static final double[] DEFAULT_BOUNDS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 1800};
+
+    @Getter
+    private final MeterId id;
+    @Getter
+    private final Histogram histogram;
+
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timer(MeterId id) {
+        this.id = id;
+        this.histogram = new Histogram(id, DEFAULT_BOUNDS);
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos / 1e9);
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+}
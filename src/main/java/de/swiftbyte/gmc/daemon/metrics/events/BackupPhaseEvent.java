@@ -0,0 +1,20 @@
+package de.swiftbyte.gmc.daemon.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.swiftbyte.gmc.BackupPhase")
+@Label("Backup Phase")
+@Category({"GMC Daemon", "Backups"})
+@Description("One phase of a game server backup.")
+public class BackupPhaseEvent extends Event {
+
+    @Label("Server Id")
+    public String serverId;
+
+    @Label("Phase")
+    public String phase;
+}
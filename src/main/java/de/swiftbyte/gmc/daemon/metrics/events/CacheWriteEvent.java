@@ -0,0 +1,23 @@
+package de.swiftbyte.gmc.daemon.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.swiftbyte.gmc.CacheWrite")
+@Label("Cache Write")
+@Category({"GMC Daemon", "Persistence"})
+@Description("Serialisation and write of the node cache.")
+public class CacheWriteEvent extends Event {
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Written")
+    @Description("False if the content did not change and the write was skipped.")
+    public boolean written;
+}
@@ -0,0 +1,17 @@
+package de.swiftbyte.gmc.daemon.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.swiftbyte.gmc.ProcessScan")
+@Label("Process Scan")
+@Category({"GMC Daemon", "Game Servers"})
+@Description("Snapshot of all running processes taken by the process index.")
+public class ProcessScanEvent extends Event {
+
+    @Label("Process Count")
+    public int processCount;
+}
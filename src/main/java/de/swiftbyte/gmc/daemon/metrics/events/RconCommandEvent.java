@@ -0,0 +1,24 @@
+package de.swiftbyte.gmc.daemon.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.swiftbyte.gmc.RconCommand")
+@Label("RCON Command")
+@Category({"GMC Daemon", "Game Servers"})
+@Description("Round-trip of an RCON command to a game server.")
+public class RconCommandEvent extends Event {
+
+    @Label("Server Id")
+    public String serverId;
+
+    // Only the command name, arguments may contain chat messages
+    @Label("Command")
+    public String command;
+
+    @Label("Success")
+    public boolean success;
+}
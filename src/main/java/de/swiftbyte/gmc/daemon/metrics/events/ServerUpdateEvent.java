@@ -0,0 +1,20 @@
+package de.swiftbyte.gmc.daemon.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.swiftbyte.gmc.ServerUpdate")
+@Label("Server Update")
+@Category({"GMC Daemon", "Game Servers"})
+@Description("One run of the update loop of a game server.")
+public class ServerUpdateEvent extends Event {
+
+    @Label("Server Id")
+    public String serverId;
+
+    @Label("State")
+    public String state;
+}
@@ -0,0 +1,17 @@
+package de.swiftbyte.gmc.daemon.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.swiftbyte.gmc.StompQueue")
+@Label("STOMP Queue Wait")
+@Category({"GMC Daemon", "STOMP"})
+@Description("Time an outbound packet waited in the STOMP send queue.")
+public class StompQueueEvent extends Event {
+
+    @Label("Lane")
+    public String lane;
+}
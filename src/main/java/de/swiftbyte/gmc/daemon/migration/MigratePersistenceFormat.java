@@ -0,0 +1,33 @@
+package de.swiftbyte.gmc.daemon.migration;
+
+import de.swiftbyte.gmc.daemon.utils.PersistenceFormat;
+import de.swiftbyte.gmc.daemon.utils.PersistenceUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * MIGRATION LEVEL 2
+ * This script will rewrite the node cache and the backup snapshot in the configured persistence format.
+ * Files that are already stored in that format are left untouched.
+ */
+@Slf4j
+public class MigratePersistenceFormat implements MigrationScript {
+
+    @Override
+    public void run() {
+        log.info("Starting migration script 2...");
+
+        log.info("Converting state files to {}...", PersistenceFormat.getConfigured().getExtension());
+        for (String baseName : new String[]{"./cache", "./backups"}) {
+            try {
+                PersistenceUtils.convertToConfiguredFormat(baseName);
+            } catch (IOException e) {
+                // Loading falls back to the old format, so the file is converted with its next write
+                log.error("An unknown error occurred while converting '{}'.", baseName, e);
+            }
+        }
+
+        log.info("Persistence format migration was successful. Exiting migration script...");
+    }
+}
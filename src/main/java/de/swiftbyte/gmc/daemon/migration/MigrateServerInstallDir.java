@@ -2,7 +2,7 @@ package de.swiftbyte.gmc.daemon.migration;
 
 import de.swiftbyte.gmc.daemon.cache.CacheModel;
 import de.swiftbyte.gmc.daemon.cache.GameServerCacheModel;
-import de.swiftbyte.gmc.daemon.utils.CommonUtils;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
@@ -30,7 +30,7 @@ public class MigrateServerInstallDir implements MigrationScript {
                 return;
             }
 
-            CacheModel cacheModel = CommonUtils.getObjectReader().readValue(cacheFile, CacheModel.class);
+            CacheModel cacheModel = MapperUtils.readerFor(CacheModel.class).readValue(cacheFile);
             HashMap<String, GameServerCacheModel> gameServerCacheModelHashMap = cacheModel.getGameServerCacheModelHashMap();
 
             log.info("Found {} servers. Starting folder name migration...", gameServerCacheModelHashMap.size());
@@ -3,33 +3,46 @@ package de.swiftbyte.gmc.daemon.server;
 import de.swiftbyte.gmc.common.entity.GameServerState;
 import de.swiftbyte.gmc.common.model.SettingProfile;
 import de.swiftbyte.gmc.common.packet.from.backend.server.ServerDeletePacket;
-import de.swiftbyte.gmc.daemon.Node;
 import de.swiftbyte.gmc.daemon.service.AutoRestartService;
 import de.swiftbyte.gmc.daemon.service.BackupService;
 import de.swiftbyte.gmc.daemon.service.FirewallService;
+import de.swiftbyte.gmc.daemon.service.NodeCache;
+import de.swiftbyte.gmc.daemon.service.ProcessIndexService;
+import de.swiftbyte.gmc.daemon.service.RconService;
+import de.swiftbyte.gmc.daemon.service.ServerUpdateScheduler;
 import de.swiftbyte.gmc.daemon.stomp.StompHandler;
 import de.swiftbyte.gmc.daemon.utils.CommonUtils;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
 import de.swiftbyte.gmc.daemon.utils.NodeUtils;
 import de.swiftbyte.gmc.daemon.utils.ServerUtils;
 import de.swiftbyte.gmc.daemon.utils.action.AsyncAction;
+import de.swiftbyte.gmc.daemon.utils.rcon.RconAuthenticationException;
 import de.swiftbyte.gmc.daemon.utils.settings.MapSettingsAdapter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.NotNull;
-import xyz.astroark.Rcon;
-import xyz.astroark.exception.AuthenticationException;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public abstract class ArkServer extends GameServer {
 
+    // How long the start thread waits for the game process to show up after the launcher returned
+    private static final long GAME_PROCESS_TIMEOUT_MILLIS = 60000;
+
+    // How long stop waits for the process to exit after it was killed
+    private static final long KILL_TIMEOUT_MILLIS = 30000;
+
     @Setter
     protected int rconPort;
 
@@ -174,8 +187,9 @@ public abstract class ArkServer extends GameServer {
                 FirewallService.removePort(friendlyName);
                 BackupService.deleteAllBackupsByServer(this);
                 GameServer.removeServerById(serverId);
-                updateScheduler.cancel(false);
-                NodeUtils.cacheInformation(Node.INSTANCE);
+                ServerUpdateScheduler.unregister(serverId);
+                RconService.closeSession(serverId);
+                NodeCache.markServerDirty(serverId);
 
                 ServerDeletePacket packet = new ServerDeletePacket();
                 packet.setServerId(serverId);
@@ -196,8 +210,9 @@ public abstract class ArkServer extends GameServer {
         return () -> {
             AutoRestartService.cancelAutoRestart(serverId);
             GameServer.removeServerById(serverId);
-            NodeUtils.cacheInformation(Node.INSTANCE);
-            updateScheduler.cancel(false);
+            NodeCache.markServerDirty(serverId);
+            ServerUpdateScheduler.unregister(serverId);
+            RconService.closeSession(serverId);
             return true;
         };
     }
@@ -220,30 +235,32 @@ public abstract class ArkServer extends GameServer {
                 return false;
             }
 
-            new Thread(() -> {
+            Thread.ofVirtual().start(() -> {
                 writeStartupBatch();
                 ServerUtils.writeIniFiles(this, installDir);
                 try {
                     String startupScript = CommonUtils.convertPathSeparator(installDir.resolve("start.bat").toString());
                     List<String> startCommand = List.of("cmd", "/c", "start", "/min", "", startupScript);
                     log.debug("Starting server with command {}", String.join(" ", startCommand));
-                    serverProcess = new ProcessBuilder(startCommand).start();
-                    Scanner scanner = new Scanner(serverProcess.getInputStream());
-                    while (scanner.hasNextLine()) {
-                    }
-
-                    MapSettingsAdapter gmcSettings = new MapSettingsAdapter(settings.getGmcSettings());
-
-                    if (gmcSettings.getBoolean("RestartOnCrash", false) && (state != GameServerState.OFFLINE && state != GameServerState.STOPPING)) {
-                        super.setState(GameServerState.RESTARTING);
-                    } else {
-                        super.setState(GameServerState.OFFLINE);
+                    // The output is discarded, so the game process does not inherit a pipe that has to be drained
+                    serverProcess = new ProcessBuilder(startCommand)
+                            .redirectErrorStream(true)
+                            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                            .start();
+                    serverProcess.waitFor();
+
+                    // From here on, exits of the game process are reported by trackProcess
+                    if (!awaitGameProcess()) {
+                        log.error("Server '{}' did not start a game process.", friendlyName);
+                        handleUnexpectedExit();
                     }
 
+                } catch (InterruptedException e) {
+                    log.warn("Starting server '{}' was interrupted.", friendlyName);
                 } catch (IOException e) {
                     log.error("An unknown exception occurred while starting the server '{}'.", friendlyName, e);
                 }
-            }).start();
+            });
 
             return true;
         };
@@ -296,7 +313,10 @@ public abstract class ArkServer extends GameServer {
             }
             if (sendRconCommand("saveworld") == null) {
                 log.debug("No connection to server '{}'. Killing process...", friendlyName);
-                ServerUtils.killServerProcess(PID);
+                // Tracks a game process that is still starting, so there is a PID to kill
+                if (!markOfflineIfExited()) {
+                    ServerUtils.killServerProcess(PID);
+                }
             } else {
                 try {
                     Thread.sleep(10000);
@@ -307,20 +327,73 @@ public abstract class ArkServer extends GameServer {
                 currentOnlinePlayers = 0;
             }
 
-            synchronized (this) {
-                while (state != GameServerState.OFFLINE) {
-                    try {
-                        this.wait(1000);
-                    } catch (InterruptedException e) {
-                        log.error("An unknown exception occurred while stopping the server '{}'.", friendlyName, e);
+            try {
+                long stopTimeoutSeconds = ConfigUtils.getInt("server-stop-timeout-seconds", 180);
+                if (!awaitOffline(stopTimeoutSeconds * 1000) && !markOfflineIfExited()) {
+                    log.warn("Server '{}' did not shut down within {} seconds. Killing process...", friendlyName, stopTimeoutSeconds);
+                    ServerUtils.killServerProcess(PID);
+
+                    if (!awaitOffline(KILL_TIMEOUT_MILLIS) && !markOfflineIfExited()) {
+                        log.error("Server '{}' is still running after it was killed.", friendlyName);
+                        return false;
                     }
                 }
-                log.debug("Server '{}' is offline.", friendlyName);
-                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for server '{}' to stop.", friendlyName);
+                return false;
             }
+
+            log.debug("Server '{}' is offline.", friendlyName);
+            return true;
         };
     }
 
+    /**
+     * @return whether the server went offline before the timeout elapsed
+     */
+    private boolean awaitOffline(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (state != GameServerState.OFFLINE) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // Woken up by setState as soon as the process exit was observed
+                this.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks the process table in case the exit of the game process was missed, e.g. because it was never tracked.
+     *
+     * @return whether the server is offline now
+     */
+    private boolean markOfflineIfExited() {
+        ProcessHandle handle = processHandle;
+        if (handle != null && handle.isAlive()) {
+            return false;
+        }
+
+        ProcessIndexService.invalidate();
+        Optional<ProcessHandle> running = ProcessIndexService.findProcessInDirectory(getBinariesDirectory());
+        if (running.isPresent()) {
+            trackProcess(running.get());
+            return false;
+        }
+
+        synchronized (this) {
+            processHandle = null;
+            PID = null;
+        }
+        log.debug("Process of server '{}' exited unnoticed.", friendlyName);
+        super.setState(GameServerState.OFFLINE);
+        return true;
+    }
+
     public AsyncAction<Boolean> restart() {
         return () -> {
             if (state == GameServerState.CREATING) {
@@ -344,8 +417,8 @@ public abstract class ArkServer extends GameServer {
 
     @Override
     public void update() {
-        if (PID == null && installDir != null) {
-            PID = CommonUtils.getProcessPID(installDir + CommonUtils.convertPathSeparator("/ShooterGame/Binaries/Win64/"));
+        if (processHandle == null && installDir != null) {
+            ProcessIndexService.findProcessInDirectory(getBinariesDirectory()).ifPresent(this::trackProcess);
         }
 
         switch (state) {
@@ -394,8 +467,9 @@ public abstract class ArkServer extends GameServer {
                 }).start();
             }
             case STOPPING -> {
-                if (CommonUtils.getProcessPID(installDir + CommonUtils.convertPathSeparator("/ShooterGame/Binaries/Win64/")) == null) {
-                    super.setState(GameServerState.OFFLINE);
+                // The process might not be tracked yet if the server is stopped while it is still starting
+                if (processHandle == null) {
+                    markOfflineIfExited();
                 }
             }
             case OFFLINE -> restartCounter = 0;
@@ -409,27 +483,122 @@ public abstract class ArkServer extends GameServer {
     @Override
     public String sendRconCommand(String command) {
         try {
-            if (state == GameServerState.CREATING) {
-                log.warn("Server '{}' is busy (CREATING). RCON '{}' ignored.", friendlyName, command);
-                return null;
+            return sendRconCommandAsync(command).get();
+        } catch (ExecutionException e) {
+            log.debug("Information: Port: {}, Password: {}", rconPort, rconPassword);
+            if (e.getCause() instanceof RconAuthenticationException) {
+                log.error("Rcon authentication failed for server '{}'.", friendlyName);
+            } else if (e.getCause() instanceof TimeoutException) {
+                log.debug("Server '{}' did not answer rcon command '{}' in time.", friendlyName, command);
+            } else {
+                log.debug("Can not send rcon command because server '{}' is offline.", friendlyName, e.getCause());
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> sendRconCommandAsync(String command) {
+        if (state == GameServerState.CREATING) {
+            log.warn("Server '{}' is busy (CREATING). RCON '{}' ignored.", friendlyName, command);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (rconPort == 0 || CommonUtils.isNullOrEmpty(rconPassword)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return RconService.sendCommandAsync(serverId, rconPort, rconPassword, command);
+    }
+
+    protected Path getBinariesDirectory() {
+        return installDir.resolve("ShooterGame/Binaries/Win64");
+    }
+
+    /**
+     * Starts watching the given game process. Its exit drives the OFFLINE/RESTARTING transitions, so shutdowns
+     * and crashes are noticed immediately instead of on the next update.
+     */
+    protected synchronized void trackProcess(ProcessHandle handle) {
+        if (processHandle != null && processHandle.pid() == handle.pid()) {
+            return;
+        }
+
+        processHandle = handle;
+        PID = String.valueOf(handle.pid());
+        log.debug("Tracking process {} of server '{}'.", PID, friendlyName);
+
+        handle.onExit().thenRun(() -> onProcessExit(handle));
+    }
+
+    private void onProcessExit(ProcessHandle handle) {
+        synchronized (this) {
+            // The server was restarted or stopped in the meantime, this exit belongs to an old process
+            if (processHandle == null || processHandle.pid() != handle.pid()) {
+                return;
             }
-            if (rconPort == 0 || CommonUtils.isNullOrEmpty(rconPassword)) {
-                return null;
+            processHandle = null;
+            PID = null;
+        }
+
+        log.debug("Process {} of server '{}' exited.", handle.pid(), friendlyName);
+
+        // Loaders like AsaApiLoader exit after spawning the actual server, which keeps running
+        ProcessIndexService.invalidate();
+        Optional<ProcessHandle> successor = ProcessIndexService.findProcessInDirectory(getBinariesDirectory());
+        if (successor.isPresent()) {
+            trackProcess(successor.get());
+            return;
+        }
+
+        switch (state) {
+            case STOPPING -> super.setState(GameServerState.OFFLINE);
+            case ONLINE, INITIALIZING -> {
+                log.warn("Server '{}' exited unexpectedly.", friendlyName);
+                handleUnexpectedExit();
             }
-            Rcon rcon = new Rcon("127.0.0.1", rconPort, rconPassword.getBytes());
-            String response = rcon.command(command);
+            default -> {
+            }
+        }
+    }
 
-            rcon.disconnect();
+    private boolean awaitGameProcess() throws InterruptedException {
+        ProcessIndexService.invalidate();
 
-            return response;
-        } catch (IOException e) {
-            log.debug("Information: Port: {}, Password: {}", rconPort, rconPassword);
-            log.debug("Can not send rcon command because server '{}' is offline.", friendlyName, e);
-            return null;
-        } catch (AuthenticationException e) {
-            log.debug("Information: Port: {}, Password: {}", rconPort, rconPassword);
-            log.error("Rcon authentication failed for server '{}'.", friendlyName);
-            return null;
+        long deadline = System.currentTimeMillis() + GAME_PROCESS_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (processHandle != null) {
+                return true;
+            }
+            // A server that was stopped while starting keeps being watched, its game process can still come up
+            if (state != GameServerState.INITIALIZING && state != GameServerState.STOPPING && state != GameServerState.OFFLINE) {
+                return true;
+            }
+
+            Optional<ProcessHandle> handle = ProcessIndexService.findProcessInDirectory(getBinariesDirectory());
+            if (handle.isPresent()) {
+                if (state == GameServerState.OFFLINE) {
+                    log.debug("Server '{}' was stopped before its game process came up. Killing process...", friendlyName);
+                    ServerUtils.killServerProcess(String.valueOf(handle.get().pid()));
+                } else {
+                    trackProcess(handle.get());
+                }
+                return true;
+            }
+            Thread.sleep(1000);
+        }
+        return state != GameServerState.INITIALIZING;
+    }
+
+    private void handleUnexpectedExit() {
+        MapSettingsAdapter gmcSettings = new MapSettingsAdapter(settings.getGmcSettings());
+
+        if (gmcSettings.getBoolean("RestartOnCrash", false) && (state != GameServerState.OFFLINE && state != GameServerState.STOPPING)) {
+            log.debug("Restarting server '{}'...", friendlyName);
+            super.setState(GameServerState.RESTARTING);
+        } else {
+            super.setState(GameServerState.OFFLINE);
         }
     }
 
@@ -4,6 +4,7 @@ import de.swiftbyte.gmc.common.entity.GameServerState;
 import de.swiftbyte.gmc.common.model.SettingProfile;
 import de.swiftbyte.gmc.daemon.Node;
 import de.swiftbyte.gmc.daemon.service.FirewallService;
+import de.swiftbyte.gmc.daemon.service.ProcessIndexService;
 import de.swiftbyte.gmc.daemon.utils.CommonUtils;
 import de.swiftbyte.gmc.daemon.utils.ServerUtils;
 import de.swiftbyte.gmc.daemon.utils.settings.INISettingsAdapter;
@@ -41,7 +42,7 @@ public class AsaServer extends ArkServer {
         rconPort = iniSettingsAdapter.getInt("ServerSettings", "RCONPort", 27020);
 
         if (!overrideAutoStart) {
-            PID = CommonUtils.getProcessPID(this.installDir + CommonUtils.convertPathSeparator("/ShooterGame/Binaries/Win64/"));
+            ProcessIndexService.findProcessInDirectory(getBinariesDirectory()).ifPresent(this::trackProcess);
             if (PID == null && gmcSettings.getBoolean("StartOnBoot", false)) {
                 start().queue();
             } else if (PID != null) {
@@ -3,11 +3,13 @@ package de.swiftbyte.gmc.daemon.server;
 import de.swiftbyte.gmc.common.entity.GameServerState;
 import de.swiftbyte.gmc.common.model.SettingProfile;
 import de.swiftbyte.gmc.common.packet.from.daemon.server.ServerStatePacket;
-import de.swiftbyte.gmc.daemon.Application;
 import de.swiftbyte.gmc.daemon.Node;
 import de.swiftbyte.gmc.daemon.service.AutoRestartService;
 import de.swiftbyte.gmc.daemon.service.BackupService;
 import de.swiftbyte.gmc.daemon.service.FirewallService;
+import de.swiftbyte.gmc.daemon.service.NodeCache;
+import de.swiftbyte.gmc.daemon.service.RconService;
+import de.swiftbyte.gmc.daemon.service.ServerUpdateScheduler;
 import de.swiftbyte.gmc.daemon.stomp.StompHandler;
 import de.swiftbyte.gmc.daemon.utils.ServerUtils;
 import de.swiftbyte.gmc.daemon.utils.action.AsyncAction;
@@ -20,22 +22,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class GameServer {
 
     private static final ConcurrentHashMap<String, GameServer> GAME_SERVERS = new ConcurrentHashMap<>();
 
-    protected ScheduledFuture<?> updateScheduler;
-
     @Getter
     protected String PID;
 
     protected Process serverProcess;
 
+    // Handle of the running game process, exits are reported through its onExit() future
+    protected volatile ProcessHandle processHandle;
+
     @Getter
     protected volatile GameServerState state;
 
@@ -74,16 +76,8 @@ public abstract class GameServer {
         initSettings(baseline);
 
         setState(GameServerState.OFFLINE);
-        updateScheduler = Application.getExecutor().scheduleWithFixedDelay(() -> {
-            try {
-                // Skip update cycle while the server is in CREATING state (used to block operations during moves)
-                if (this.state != GameServerState.CREATING) {
-                    this.update();
-                }
-            } catch (Exception e) {
-                log.error("Unhandled exception in server '{}'.", friendlyName, e);
-            }
-        }, 0, 10, TimeUnit.SECONDS);
+        ServerUpdateScheduler.register(this);
+        NodeCache.markServerDirty(id);
 
         // setSettings already triggers backup and auto-restart scheduling
 
@@ -135,12 +129,19 @@ public abstract class GameServer {
 
     public abstract String sendRconCommand(String command);
 
+    /**
+     * Sends a command without blocking the calling thread. The future completes with {@code null} when RCON is not
+     * available and exceptionally when the server is unreachable or does not answer in time.
+     */
+    public abstract CompletableFuture<String> sendRconCommandAsync(String command);
+
     public abstract List<Integer> getNeededPorts();
 
     public abstract void allowFirewallPorts();
 
     public void setInstallDir(Path newInstallDir) {
         this.installDir = newInstallDir.toAbsolutePath().normalize();
+        NodeCache.markServerDirty(serverId);
     }
 
     /**
@@ -163,6 +164,7 @@ public abstract class GameServer {
         Path parent = this.installDir != null ? this.installDir.getParent() : null;
         if (parent == null) {
             this.friendlyName = newFriendlyName;
+            NodeCache.markServerDirty(serverId);
             return;
         }
 
@@ -208,6 +210,9 @@ public abstract class GameServer {
 
         if (state == GameServerState.OFFLINE || state == GameServerState.INITIALIZING) {
             this.PID = null;
+            this.processHandle = null;
+            // A pooled connection cannot survive a process restart
+            RconService.closeSession(serverId);
         }
 
         synchronized (this) {
@@ -215,11 +220,13 @@ public abstract class GameServer {
             this.notifyAll();
         }
 
+        ServerUpdateScheduler.reschedule(serverId);
+
         ServerStatePacket packet = new ServerStatePacket();
         packet.setServerId(serverId);
         packet.setState(state);
 
-        StompHandler.send("/app/server/state", packet);
+        StompHandler.send("/app/server/state", serverId, packet);
     }
 
     public void setSettings(SettingProfile settings) {
@@ -230,6 +237,7 @@ public abstract class GameServer {
         allowFirewallPorts();
         BackupService.updateAutoBackupSettings(serverId);
         AutoRestartService.updateAutoRestartSettings(serverId);
+        NodeCache.markServerDirty(serverId);
     }
 
     protected static void removeServerById(String id) {
@@ -243,8 +251,4 @@ public abstract class GameServer {
     public static List<GameServer> getAllServers() {
         return new ArrayList<>(GAME_SERVERS.values());
     }
-
-    public static void abandonAll() {
-        getAllServers().forEach((server -> server.abandon().complete()));
-    }
 }
@@ -0,0 +1,109 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import de.swiftbyte.gmc.common.entity.Backup;
+import de.swiftbyte.gmc.daemon.cache.BackupJournalEntry;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import de.swiftbyte.gmc.daemon.utils.PersistenceFormat;
+import de.swiftbyte.gmc.daemon.utils.PersistenceUtils;
+import de.swiftbyte.gmc.daemon.utils.SnapshotJournal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the backup list as a snapshot ({@code backups.json} or {@code backups.smile}, depending on the configured
+ * persistence format) plus an append-only {@link SnapshotJournal} of changes.
+ */
+@Slf4j
+public class BackupCatalog {
+
+    private static final String SNAPSHOT_NAME = "./backups";
+
+    private static final ConcurrentHashMap<String, Backup> BACKUPS = new ConcurrentHashMap<>();
+
+    private static final SnapshotJournal<BackupJournalEntry> JOURNAL = new SnapshotJournal<>("backup catalog", Path.of("./backups.journal"),
+            BackupJournalEntry.class, BackupCatalog::writeSnapshot, () -> ConfigUtils.getInt("backup-journal-compaction-threshold", 500));
+
+    public static Map<String, Backup> getBackups() {
+        return Collections.unmodifiableMap(BACKUPS);
+    }
+
+    public static synchronized void load() {
+        BACKUPS.clear();
+
+        PersistenceFormat snapshotFormat = PersistenceUtils.findStoredFormat(SNAPSHOT_NAME);
+        int replayed = JOURNAL.load(() -> readSnapshot(snapshotFormat), BackupCatalog::replay);
+        log.debug("Got {} saved backups, {} changes were replayed from the journal.", BACKUPS.size(), replayed);
+
+        // Compacting also moves a snapshot in another format over to the configured one
+        if (replayed > 0 || (snapshotFormat != null && snapshotFormat != PersistenceFormat.getConfigured())) {
+            compact();
+        }
+    }
+
+    public static synchronized void add(Backup backup) {
+        BACKUPS.put(backup.getBackupId(), backup);
+        JOURNAL.append(List.of(BackupJournalEntry.builder().operation(BackupJournalEntry.Operation.CREATED).backup(backup).build()));
+    }
+
+    public static synchronized void remove(String backupId) {
+        if (BACKUPS.remove(backupId) != null) {
+            JOURNAL.append(List.of(BackupJournalEntry.builder().operation(BackupJournalEntry.Operation.DELETED).backupId(backupId).build()));
+        }
+    }
+
+    /**
+     * Removes several backups with a single journal write.
+     */
+    public static synchronized void removeAll(Collection<String> backupIds) {
+        List<BackupJournalEntry> entries = backupIds.stream()
+                .filter(backupId -> BACKUPS.remove(backupId) != null)
+                .map(backupId -> BackupJournalEntry.builder().operation(BackupJournalEntry.Operation.DELETED).backupId(backupId).build())
+                .toList();
+        if (!entries.isEmpty()) {
+            JOURNAL.append(entries);
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot and truncates it.
+     */
+    public static synchronized void compact() {
+        JOURNAL.compact();
+    }
+
+    private static void readSnapshot(PersistenceFormat snapshotFormat) throws IOException {
+        if (snapshotFormat == null) {
+            log.debug("No backup snapshot found.");
+            return;
+        }
+
+        TypeReference<HashMap<String, Backup>> typeRef = new TypeReference<>() {
+        };
+        BACKUPS.putAll(snapshotFormat.getReader().forType(typeRef).readValue(snapshotFormat.resolve(SNAPSHOT_NAME).toFile()));
+    }
+
+    private static void writeSnapshot() throws IOException {
+        HashMap<String, Backup> snapshot = new HashMap<>(BACKUPS);
+        PersistenceFormat format = PersistenceFormat.getConfigured();
+        PersistenceUtils.writeAtomically(SNAPSHOT_NAME, format, format.getWriter().writeValueAsBytes(snapshot));
+    }
+
+    private static void replay(BackupJournalEntry entry) {
+        if (entry.getOperation() == null) {
+            return;
+        }
+        switch (entry.getOperation()) {
+            case CREATED -> BACKUPS.put(entry.getBackup().getBackupId(), entry.getBackup());
+            case DELETED -> BACKUPS.remove(entry.getBackupId());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.Application;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the backups ordered by the time they are due for deletion and fires exactly when the earliest one is due.
+ * <p>
+ * Only a single timer is scheduled at any time. All backups that are due when it fires are handed over as one
+ * batch, so the cost of retention no longer depends on how many backups are kept. Backups that could not be deleted
+ * are added again with {@link #getRetryDelay()}, so they are retried without hammering a failing disk.
+ */
+@Slf4j
+public class BackupExpiryIndex {
+
+    private static final TreeSet<ExpiryEntry> ENTRIES = new TreeSet<>(Comparator.comparing(ExpiryEntry::dueAt).thenComparing(ExpiryEntry::backupId));
+    private static final HashMap<String, ExpiryEntry> ENTRIES_BY_ID = new HashMap<>();
+
+    private static Consumer<List<String>> expiryHandler;
+    private static ScheduledFuture<?> timer;
+    private static Instant timerDueAt;
+    private static boolean paused;
+
+    public static synchronized void initialise(Consumer<List<String>> handler) {
+        expiryHandler = handler;
+        reschedule();
+    }
+
+    public static synchronized void add(String backupId, Instant dueAt) {
+        if (dueAt == null) {
+            return;
+        }
+
+        ExpiryEntry previous = ENTRIES_BY_ID.put(backupId, new ExpiryEntry(dueAt, backupId));
+        if (previous != null) {
+            ENTRIES.remove(previous);
+        }
+        ENTRIES.add(ENTRIES_BY_ID.get(backupId));
+        reschedule();
+    }
+
+    public static Duration getRetryDelay() {
+        return Duration.ofMinutes(ConfigUtils.getInt("backup-expiry-retry-minutes", 10));
+    }
+
+    public static synchronized void remove(String backupId) {
+        ExpiryEntry entry = ENTRIES_BY_ID.remove(backupId);
+        if (entry != null) {
+            ENTRIES.remove(entry);
+        }
+        // A timer for an entry that is gone fires once for nothing, which is cheaper than rescheduling on every removal
+    }
+
+    /**
+     * While paused, due backups stay in the index and are handed over once resumed.
+     */
+    public static synchronized void setPaused(boolean paused) {
+        BackupExpiryIndex.paused = paused;
+        if (paused) {
+            cancelTimer();
+        } else {
+            reschedule();
+        }
+    }
+
+    private static void reschedule() {
+        if (paused || expiryHandler == null || ENTRIES.isEmpty()) {
+            cancelTimer();
+            return;
+        }
+
+        Instant dueAt = ENTRIES.first().dueAt();
+        if (timer != null && !timer.isDone() && !timerDueAt.isAfter(dueAt)) {
+            return;
+        }
+
+        cancelTimer();
+        long delay = Math.max(0, Duration.between(Instant.now(), dueAt).toMillis());
+        timerDueAt = dueAt;
+        timer = Application.getExecutor().schedule(BackupExpiryIndex::expire, delay, TimeUnit.MILLISECONDS);
+        log.debug("Next backup expires in {} seconds.", delay / 1000);
+    }
+
+    private static void cancelTimer() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+            timerDueAt = null;
+        }
+    }
+
+    private static void expire() {
+        List<String> dueBackupIds = new ArrayList<>();
+        Consumer<List<String>> handler;
+
+        synchronized (BackupExpiryIndex.class) {
+            timer = null;
+            timerDueAt = null;
+            if (paused) {
+                return;
+            }
+
+            Instant now = Instant.now();
+            while (!ENTRIES.isEmpty() && !ENTRIES.first().dueAt().isAfter(now)) {
+                ExpiryEntry entry = ENTRIES.pollFirst();
+                ENTRIES_BY_ID.remove(entry.backupId());
+                dueBackupIds.add(entry.backupId());
+            }
+            handler = expiryHandler;
+        }
+
+        try {
+            if (!dueBackupIds.isEmpty()) {
+                handler.accept(dueBackupIds);
+            }
+        } catch (Exception e) {
+            log.error("An unknown error occurred while deleting expired backups. Retrying in {} minutes.", getRetryDelay().toMinutes(), e);
+            Instant retryAt = Instant.now().plus(getRetryDelay());
+            synchronized (BackupExpiryIndex.class) {
+                // Backups that were deleted before the failure are not in the catalog anymore and expire as a no-op
+                for (String backupId : dueBackupIds) {
+                    if (!ENTRIES_BY_ID.containsKey(backupId)) {
+                        ExpiryEntry entry = new ExpiryEntry(retryAt, backupId);
+                        ENTRIES_BY_ID.put(backupId, entry);
+                        ENTRIES.add(entry);
+                    }
+                }
+            }
+        } finally {
+            synchronized (BackupExpiryIndex.class) {
+                reschedule();
+            }
+        }
+    }
+
+    private record ExpiryEntry(Instant dueAt, String backupId) {
+    }
+}
@@ -0,0 +1,209 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.cache.BackupIndexJournalEntry;
+import de.swiftbyte.gmc.daemon.cache.BackupIndexModel;
+import de.swiftbyte.gmc.daemon.cache.BackupIndexModel.BackupChainEntry;
+import de.swiftbyte.gmc.daemon.cache.BackupIndexModel.FileFingerprint;
+import de.swiftbyte.gmc.daemon.cache.BackupIndexModel.ServerFingerprint;
+import de.swiftbyte.gmc.daemon.utils.BackupArchiveUtils;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
+import de.swiftbyte.gmc.daemon.utils.PersistenceUtils;
+import de.swiftbyte.gmc.daemon.utils.SnapshotJournal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the state of every server's save directory at its last backups and the parent chain of incremental backups.
+ * <p>
+ * Files are fingerprinted by size and modification time only, so building a fingerprint costs a single stat call per
+ * file and the save files are read exactly once, by the archive writer. A {@code saveworld} always touches the map
+ * save, which then counts as changed.
+ * <p>
+ * Like {@link BackupCatalog}, the index is persisted as a snapshot plus an append-only {@link SnapshotJournal}, so a
+ * backup costs one small journal line instead of rewriting the whole index.
+ */
+@Slf4j
+public class BackupIndex {
+
+    private static final Path SNAPSHOT_FILE = Path.of("./backup-index.json");
+
+    private static BackupIndexModel index = new BackupIndexModel();
+
+    private static final SnapshotJournal<BackupIndexJournalEntry> JOURNAL = new SnapshotJournal<>("backup index", Path.of("./backup-index.journal"),
+            BackupIndexJournalEntry.class, BackupIndex::writeSnapshot, () -> ConfigUtils.getInt("backup-journal-compaction-threshold", 500));
+
+    public static synchronized void load() {
+        index = new BackupIndexModel();
+
+        if (JOURNAL.load(BackupIndex::readSnapshot, BackupIndex::replay) > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot and truncates it.
+     */
+    public static synchronized void compact() {
+        JOURNAL.compact();
+    }
+
+    public static HashMap<String, FileFingerprint> fingerprint(List<BackupArchiveUtils.SaveFile> saveFiles) {
+        HashMap<String, FileFingerprint> fingerprints = HashMap.newHashMap(saveFiles.size());
+        for (BackupArchiveUtils.SaveFile saveFile : saveFiles) {
+            fingerprints.put(saveFile.entryName(), new FileFingerprint(saveFile.size(), saveFile.lastModified()));
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Checks if the save directory is in the same state as at the last backup.
+     */
+    public static boolean isUnchanged(String serverId, Map<String, FileFingerprint> current) {
+        ServerFingerprint previous = getServerFingerprint(serverId);
+        return previous != null && previous.getLastBackupFiles() != null && sameContent(previous.getLastBackupFiles(), current);
+    }
+
+    /**
+     * @return the state of the last full backup an incremental backup can be based on, or null if the next backup
+     * has to be a full one
+     */
+    public static synchronized ServerFingerprint getIncrementalBase(String serverId, int fullBackupEvery) {
+        ServerFingerprint fingerprint = index.getServers().get(serverId);
+        if (fingerprint == null || fingerprint.getLastFullBackupId() == null || fingerprint.getFullBackupFiles() == null) {
+            return null;
+        }
+        if (fingerprint.getBackupsSinceFull() + 1 >= fullBackupEvery) {
+            return null;
+        }
+        return fingerprint;
+    }
+
+    public static Set<String> getChangedFiles(ServerFingerprint base, Map<String, FileFingerprint> current) {
+        return current.entrySet().stream()
+                .filter(entry -> !sameContent(base.getFullBackupFiles().get(entry.getKey()), entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    public static List<String> getDeletedFiles(ServerFingerprint base, Map<String, FileFingerprint> current) {
+        return base.getFullBackupFiles().keySet().stream().filter(name -> !current.containsKey(name)).sorted().toList();
+    }
+
+    public static synchronized void recordBackup(String serverId, String backupId, HashMap<String, FileFingerprint> files, String parentBackupId, List<String> deletedFiles) {
+        applyRecorded(serverId, backupId, files, parentBackupId, deletedFiles);
+        JOURNAL.append(List.of(BackupIndexJournalEntry.builder()
+                .operation(BackupIndexJournalEntry.Operation.RECORDED)
+                .serverId(serverId)
+                .backupId(backupId)
+                .files(files)
+                .parentBackupId(parentBackupId)
+                .deletedFiles(deletedFiles)
+                .build()));
+    }
+
+    private static void applyRecorded(String serverId, String backupId, HashMap<String, FileFingerprint> files, String parentBackupId, List<String> deletedFiles) {
+        ServerFingerprint fingerprint = index.getServers().computeIfAbsent(serverId, _ -> new ServerFingerprint());
+
+        if (parentBackupId == null) {
+            fingerprint.setLastFullBackupId(backupId);
+            fingerprint.setFullBackupFiles(files);
+            fingerprint.setBackupsSinceFull(0);
+        } else {
+            fingerprint.setBackupsSinceFull(fingerprint.getBackupsSinceFull() + 1);
+        }
+        fingerprint.setLastBackupFiles(files);
+
+        index.getChain().put(backupId, new BackupChainEntry(parentBackupId, deletedFiles));
+    }
+
+    public static synchronized BackupChainEntry getChainEntry(String backupId) {
+        return index.getChain().get(backupId);
+    }
+
+    public static synchronized List<String> getDependentBackupIds(String backupId) {
+        return index.getChain().entrySet().stream()
+                .filter(entry -> backupId.equals(entry.getValue().getParentBackupId()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public static synchronized void removeBackups(Collection<String> backupIds) {
+        if (applyBackupsRemoved(backupIds)) {
+            JOURNAL.append(List.of(BackupIndexJournalEntry.builder().operation(BackupIndexJournalEntry.Operation.BACKUPS_REMOVED).backupIds(List.copyOf(backupIds)).build()));
+        }
+    }
+
+    private static boolean applyBackupsRemoved(Collection<String> backupIds) {
+        boolean changed = false;
+        for (String backupId : backupIds) {
+            changed |= index.getChain().remove(backupId) != null;
+
+            // Without its full backup a server has nothing to base incremental backups on
+            for (ServerFingerprint fingerprint : index.getServers().values()) {
+                if (backupId.equals(fingerprint.getLastFullBackupId())) {
+                    fingerprint.setLastFullBackupId(null);
+                    fingerprint.setFullBackupFiles(null);
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    public static synchronized void removeServer(String serverId) {
+        if (index.getServers().remove(serverId) != null) {
+            JOURNAL.append(List.of(BackupIndexJournalEntry.builder().operation(BackupIndexJournalEntry.Operation.SERVER_REMOVED).serverId(serverId).build()));
+        }
+    }
+
+    private static synchronized ServerFingerprint getServerFingerprint(String serverId) {
+        return index.getServers().get(serverId);
+    }
+
+    private static boolean sameContent(Map<String, FileFingerprint> previous, Map<String, FileFingerprint> current) {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        return current.entrySet().stream().allMatch(entry -> sameContent(previous.get(entry.getKey()), entry.getValue()));
+    }
+
+    private static boolean sameContent(FileFingerprint previous, FileFingerprint current) {
+        return previous != null && previous.getSize() == current.getSize() && previous.getLastModified() == current.getLastModified();
+    }
+
+    private static void readSnapshot() throws IOException {
+        if (!Files.exists(SNAPSHOT_FILE)) {
+            log.debug("No backup index found. Starting with an empty one...");
+            return;
+        }
+
+        index = MapperUtils.readerFor(BackupIndexModel.class).readValue(SNAPSHOT_FILE.toFile());
+    }
+
+    private static void writeSnapshot() throws IOException {
+        byte[] snapshot = MapperUtils.writerFor(BackupIndexModel.class).writeValueAsBytes(index);
+        PersistenceUtils.writeAtomically(SNAPSHOT_FILE, out -> out.write(snapshot));
+    }
+
+    private static void replay(BackupIndexJournalEntry entry) {
+        if (entry.getOperation() == null) {
+            return;
+        }
+        switch (entry.getOperation()) {
+            case RECORDED -> applyRecorded(entry.getServerId(), entry.getBackupId(), entry.getFiles(), entry.getParentBackupId(), entry.getDeletedFiles());
+            case BACKUPS_REMOVED -> applyBackupsRemoved(entry.getBackupIds());
+            case SERVER_REMOVED -> index.getServers().remove(entry.getServerId());
+        }
+    }
+}
@@ -1,21 +1,23 @@
 package de.swiftbyte.gmc.daemon.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.swiftbyte.gmc.common.entity.Backup;
 import de.swiftbyte.gmc.common.entity.GameServerState;
 import de.swiftbyte.gmc.common.packet.from.daemon.server.ServerBackupResponsePacket;
 import de.swiftbyte.gmc.daemon.Application;
 import de.swiftbyte.gmc.daemon.Node;
+import de.swiftbyte.gmc.daemon.cache.BackupIndexModel;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Span;
+import de.swiftbyte.gmc.daemon.metrics.events.BackupPhaseEvent;
 import de.swiftbyte.gmc.daemon.server.AsaServer;
 import de.swiftbyte.gmc.daemon.server.GameServer;
 import de.swiftbyte.gmc.daemon.stomp.StompHandler;
+import de.swiftbyte.gmc.daemon.utils.BackupArchiveUtils;
 import de.swiftbyte.gmc.daemon.utils.CommonUtils;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
 import de.swiftbyte.gmc.daemon.utils.DirectoryMoveUtils;
 import de.swiftbyte.gmc.daemon.utils.NodeUtils;
+import de.swiftbyte.gmc.daemon.utils.ParallelZipWriter;
 import de.swiftbyte.gmc.daemon.utils.settings.MapSettingsAdapter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -27,15 +29,20 @@ import org.zeroturnaround.zip.ZipUtil;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -43,7 +50,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class BackupService {
 
-    private static HashMap<String, Backup> backups = new HashMap<>();
+    private static final Map<String, Backup> backups = BackupCatalog.getBackups();
     private static HashMap<String, ScheduledFuture<?>> backupSchedulers;
     private static volatile boolean backupsSuspended = false;
 
@@ -53,25 +60,12 @@ public class BackupService {
 
         backupSchedulers = new HashMap<>();
 
-        File cacheFile = new File("./backups.json");
+        BackupIndex.load();
 
-        if (!cacheFile.exists()) {
-            log.debug("No backups found. Skipping...");
-            return;
-        }
-
-        try {
-            TypeReference<HashMap<String, Backup>> typeRef = new TypeReference<>() {
-            };
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.registerModules(new JavaTimeModule());
-            backups = mapper.readValue(new File("./backups.json"), typeRef);
+        BackupCatalog.load();
 
-            log.debug("Got saved backups.");
-
-        } catch (IOException e) {
-            log.error("An unknown error occurred while loading backups.", e);
-        }
+        backups.values().forEach(backup -> BackupExpiryIndex.add(backup.getBackupId(), backup.getExpiresAt()));
+        BackupExpiryIndex.initialise(BackupService::deleteExpiredBackups);
     }
 
     public static void updateAutoBackupSettings(String serverId) {
@@ -136,21 +130,6 @@ public class BackupService {
         }
     }
 
-    private static void saveBackupCache() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
-        try {
-            File file = new File("./backups.json");
-            if (!file.exists()) {
-                file.createNewFile();
-            }
-            writer.writeValue(file, backups);
-        } catch (IOException e) {
-            log.error("An unknown error occurred while saving backups.", e);
-        }
-    }
-
     public static void backupServer(String serverId, boolean autoBackup) {
         backupServer(GameServer.getServerById(serverId), autoBackup, null);
     }
@@ -183,7 +162,47 @@ public class BackupService {
             server.sendRconCommand("serverchat " + settings.get("AutoBackupMessage", "Server backup in progress..."));
         }
 
-        server.sendRconCommand("saveworld");
+        try (Span _ = phase(server, "save")) {
+            server.sendRconCommand("saveworld");
+        }
+
+        //TODO find a better way to handle different save locations for different game servers then hardcoding it here
+        File saveLocation = new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks" + (server instanceof AsaServer ? "/" + server.getSettings().getMap() : ""));
+
+        if (!saveLocation.exists()) {
+            throw new IllegalStateException("Save location does not exist: " + saveLocation.getAbsolutePath());
+        }
+
+        List<BackupArchiveUtils.SaveFile> saveFiles;
+        HashMap<String, BackupIndexModel.FileFingerprint> fingerprint;
+        try (Span _ = phase(server, "scan")) {
+            saveFiles = BackupArchiveUtils.collectSaveFiles(saveLocation.toPath(), server.getSettings().getMap());
+            fingerprint = BackupIndex.fingerprint(saveFiles);
+        } catch (IOException e) {
+            throw new RuntimeException("Backup failed for server '" + server.getFriendlyName() + "': " + e.getMessage(), e);
+        }
+
+        if (autoBackup && settings.getBoolean("SkipUnchangedBackups", true) && BackupIndex.isUnchanged(server.getServerId(), fingerprint)) {
+            log.info("Save files of server '{}' did not change since the last backup. Skipping auto backup...", server.getFriendlyName());
+            return;
+        }
+
+        boolean copyMode = ConfigUtils.get("backup-mode", "streaming").equalsIgnoreCase("copy");
+
+        // Incremental backups only hold the files that changed since the last full backup
+        String parentBackupId = null;
+        List<String> deletedFiles = List.of();
+        List<BackupArchiveUtils.SaveFile> filesToStore = saveFiles;
+        BackupIndexModel.ServerFingerprint incrementalBase = settings.getBoolean("IncrementalBackups", false) && !copyMode
+                ? BackupIndex.getIncrementalBase(server.getServerId(), settings.getInt("FullBackupEvery", 12))
+                : null;
+        if (incrementalBase != null && backups.containsKey(incrementalBase.getLastFullBackupId())) {
+            parentBackupId = incrementalBase.getLastFullBackupId();
+            deletedFiles = BackupIndex.getDeletedFiles(incrementalBase, fingerprint);
+            Set<String> changedFiles = BackupIndex.getChangedFiles(incrementalBase, fingerprint);
+            filesToStore = saveFiles.stream().filter(saveFile -> changedFiles.contains(saveFile.entryName())).toList();
+            log.debug("Creating incremental backup with {} of {} files based on '{}'.", filesToStore.size(), saveFiles.size(), parentBackupId);
+        }
 
         Backup backup = new Backup();
 
@@ -198,105 +217,201 @@ public class BackupService {
         }
         backup.setAutoBackup(autoBackup);
 
-        File tempBackupLocation = Path.of(NodeUtils.TMP_PATH, server.getServerId(), backup.getBackupId()).toFile();
         File backupLocation = Path.of(Node.INSTANCE.getBackupPath(), server.getServerId(), backup.getName() + ".zip").toFile();
 
-        //TODO find a better way to handle different save locations for different game servers then hardcoding it here
-        File saveLocation = new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks" + (server instanceof AsaServer ? "/" + server.getSettings().getMap() : ""));
-
         log.debug("Creating backup directories...");
 
-        if (!tempBackupLocation.exists()) {
-            tempBackupLocation.mkdirs();
-        }
-
         if (!backupLocation.getParentFile().exists()) {
             backupLocation.getParentFile().mkdirs();
         }
 
-        if (!saveLocation.exists()) {
-            throw new IllegalStateException("Save location does not exist: " + saveLocation.getAbsolutePath());
+        try {
+            ParallelZipWriter.CompressionLevel level = ParallelZipWriter.CompressionLevel.fromSetting(settings.get("BackupCompressionLevel", null));
+
+            if (settings.get("BackupFormat", "zip").equalsIgnoreCase("dedup")) {
+                log.debug("Storing save files in deduplicated backup store...");
+                // Size of a deduplicated backup is what it added to the store
+                try (Span _ = phase(server, "compress")) {
+                    backup.setSize(DedupBackupStore.storeBackup(backup.getBackupId(), server.getServerId(), filesToStore, level.getDeflaterLevel()));
+                }
+            } else {
+                if (copyMode) {
+                    createBackupArchiveFromCopy(server, backup, saveLocation, backupLocation);
+                } else {
+                    log.debug("Compressing save files into backup...");
+                    try (Span _ = phase(server, "compress")) {
+                        BackupArchiveUtils.writeZip(filesToStore, backupLocation.toPath(), level);
+                    }
+                }
+                backup.setSize(backupLocation.length());
+            }
+
+            log.debug("Gathering backup information...");
+            try (Span _ = phase(server, "publish")) {
+                BackupCatalog.add(backup);
+                BackupExpiryIndex.add(backup.getBackupId(), backup.getExpiresAt());
+                BackupIndex.recordBackup(server.getServerId(), backup.getBackupId(), fingerprint, parentBackupId, deletedFiles);
+
+                ServerBackupResponsePacket responsePacket = new ServerBackupResponsePacket();
+                responsePacket.setBackup(backup);
+                responsePacket.setServerId(server.getServerId());
+                StompHandler.send("/app/server/backup", responsePacket);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Backup failed for server '" + server.getFriendlyName() + "': " + e.getMessage(), e);
+        }
+    }
+
+    // Former backup path, kept for file systems where reading the live save directory is not wanted
+    private static void createBackupArchiveFromCopy(GameServer server, Backup backup, File saveLocation, File backupLocation) throws IOException {
+        File tempBackupLocation = Path.of(NodeUtils.TMP_PATH, server.getServerId(), backup.getBackupId()).toFile();
+
+        if (!tempBackupLocation.exists()) {
+            tempBackupLocation.mkdirs();
         }
 
         log.debug("Copying save files to temporary backup location...");
 
-        try {
-            IOFileFilter filter = FileFilterUtils.notFileFilter(FileFilterUtils.suffixFileFilter(".tmp"));
+        IOFileFilter filter = FileFilterUtils.notFileFilter(FileFilterUtils.suffixFileFilter(".tmp"));
+        try (Span _ = phase(server, "copy")) {
             FileUtils.copyDirectory(saveLocation, tempBackupLocation, filter);
+        }
 
-            //Remove ark backup files
-            FileFilter mapSaveFilter = WildcardFileFilter.builder().setWildcards("*.ark").get();
-            File[] mapSaveFiles = tempBackupLocation.listFiles(mapSaveFilter);
-            Arrays.stream(mapSaveFiles).filter(file -> !file.getName().equalsIgnoreCase(server.getSettings().getMap() + ".ark")).forEach(File::delete);
+        //Remove ark backup files
+        FileFilter mapSaveFilter = WildcardFileFilter.builder().setWildcards("*.ark").get();
+        File[] mapSaveFiles = tempBackupLocation.listFiles(mapSaveFilter);
+        Arrays.stream(mapSaveFiles).filter(file -> !file.getName().equalsIgnoreCase(server.getSettings().getMap() + ".ark")).forEach(File::delete);
 
-            log.debug("Compressing backup...");
+        log.debug("Compressing backup...");
+        try (Span _ = phase(server, "compress")) {
             ZipUtil.pack(tempBackupLocation, backupLocation);
+        }
 
-            log.debug("Gathering backup information...");
-            backup.setSize(backupLocation.length());
-            backups.put(backup.getBackupId(), backup);
-
-            ServerBackupResponsePacket responsePacket = new ServerBackupResponsePacket();
-            responsePacket.setBackup(backup);
-            responsePacket.setServerId(server.getServerId());
-            StompHandler.send("/app/server/backup", responsePacket);
-
-            log.debug("Cleaning up temporary backup location...");
-            FileUtils.deleteDirectory(tempBackupLocation);
+        log.debug("Cleaning up temporary backup location...");
+        FileUtils.deleteDirectory(tempBackupLocation);
+    }
 
-            saveBackupCache();
-        } catch (IOException e) {
-            throw new RuntimeException("Backup failed for server '" + server.getFriendlyName() + "': " + e.getMessage(), e);
-        }
+    private static Span phase(GameServer server, String phase) {
+        BackupPhaseEvent event = new BackupPhaseEvent();
+        event.serverId = server.getServerId();
+        event.phase = phase;
+        return Span.start(MetricsRegistry.timer("gmc_backup_phase_seconds", "Duration of the phases of game server backups.", "phase", phase), event);
     }
 
-    public static boolean deleteBackup(String backupId) {
+    /**
+     * Deletes a backup together with the incremental backups based on it.
+     *
+     * @return the ids of all deleted backups, which can include incremental backups besides the requested one
+     */
+    public static List<String> deleteBackup(String backupId) {
         Backup backup = backups.get(backupId);
 
         if (backup == null) {
             log.error("Could not delete backup because backup id was not found!");
-            return true;
+            return List.of(backupId);
+        }
+
+        List<String> deletedBackupIds = new ArrayList<>();
+        if (!deleteBackupFiles(backup, deletedBackupIds)) {
+            log.warn("Backup '{}' could not be deleted completely.", backup.getName());
+        }
+        forgetBackups(deletedBackupIds);
+        return deletedBackupIds;
+    }
+
+    // Deletes the files of a backup and its incremental backups and collects the ids of everything that is gone
+    private static boolean deleteBackupFiles(Backup backup, List<String> deletedBackupIds) {
+        String backupId = backup.getBackupId();
+        boolean success = true;
+
+        // Incremental backups are useless without their full backup
+        for (String dependentBackupId : BackupIndex.getDependentBackupIds(backupId)) {
+            Backup dependent = backups.get(dependentBackupId);
+            if (dependent != null && !deletedBackupIds.contains(dependentBackupId)) {
+                log.debug("Deleting incremental backup '{}' together with its full backup...", dependent.getName());
+                success &= deleteBackupFiles(dependent, deletedBackupIds);
+            }
+        }
+
+        if (DedupBackupStore.hasBackup(backupId)) {
+            log.debug("Deleting backup '{}' from backup store...", backup.getName());
+            try {
+                DedupBackupStore.deleteBackup(backupId);
+                deletedBackupIds.add(backupId);
+                return success;
+            } catch (IOException e) {
+                log.error("An unknown error occurred while deleting backup '{}'.", backup.getName(), e);
+                return false;
+            }
         }
 
         GameServer server = GameServer.getServerById(backup.getServerId());
         if (server == null) {
             log.error("Could not delete backup on file system because server id was not found!");
-            backups.remove(backupId);
-            saveBackupCache();
-            return true;
+            deletedBackupIds.add(backupId);
+            return success;
         }
 
         log.debug("Deleting backup '{}'...", backup.getName());
-        File backupLocation = Path.of(Node.INSTANCE.getBackupPath(), server.getServerId(), backup.getName() + ".zip").toFile();
+        File backupLocation = getBackupFile(backup, server);
         if (!backupLocation.exists()) {
             log.error("Could not delete backup because backup location does not exist!");
-            backups.remove(backupId);
-            return true;
+            deletedBackupIds.add(backupId);
+            return success;
         }
 
         try {
             FileUtils.forceDelete(backupLocation);
-            backups.remove(backupId);
-            saveBackupCache();
-            return true;
+            deletedBackupIds.add(backupId);
+            return success;
         } catch (IOException e) {
             log.error("An unknown error occurred while deleting backup '{}'.", backup.getName(), e);
             return false;
         }
     }
 
-
-    public static void deleteAllExpiredBackups() {
-        if (backupsSuspended) {
-            log.debug("Skipping expired backup cleanup; backups suspended.");
+    private static void forgetBackups(List<String> backupIds) {
+        if (backupIds.isEmpty()) {
             return;
         }
-        List<Backup> expiredBackups = backups.values().stream().filter(backup -> backup.getExpiresAt().isBefore(Instant.now())).toList();
+        BackupCatalog.removeAll(backupIds);
+        BackupIndex.removeBackups(backupIds);
+        backupIds.forEach(BackupExpiryIndex::remove);
+    }
+
+    // Called by the expiry index with every backup that is due, deletes them as one batch
+    private static void deleteExpiredBackups(List<String> dueBackupIds) {
+        Instant now = Instant.now();
+        List<String> deletedBackupIds = new ArrayList<>();
+
+        for (String backupId : dueBackupIds) {
+            Backup backup = backups.get(backupId);
+            // Might already be gone together with its full backup
+            if (backup == null || deletedBackupIds.contains(backupId)) {
+                continue;
+            }
+
+            // A full backup is kept until the last incremental backup based on it expired as well
+            Instant lastDependentExpiry = BackupIndex.getDependentBackupIds(backupId).stream()
+                    .map(backups::get)
+                    .filter(Objects::nonNull)
+                    .map(Backup::getExpiresAt)
+                    .filter(Objects::nonNull)
+                    .max(Instant::compareTo)
+                    .orElse(null);
+            if (lastDependentExpiry != null && lastDependentExpiry.isAfter(now)) {
+                BackupExpiryIndex.add(backupId, lastDependentExpiry);
+                continue;
+            }
 
-        expiredBackups.forEach(backup -> {
             log.debug("Deleting expired backup '{}'...", backup.getName());
-            deleteBackup(backup.getBackupId());
-        });
+            if (!deleteBackupFiles(backup, deletedBackupIds)) {
+                log.warn("Expired backup '{}' could not be deleted completely. Retrying in {} minutes.", backup.getName(), BackupExpiryIndex.getRetryDelay().toMinutes());
+                BackupExpiryIndex.add(backupId, now.plus(BackupExpiryIndex.getRetryDelay()));
+            }
+        }
+
+        forgetBackups(deletedBackupIds);
     }
 
     public static void rollbackBackup(String backupId, boolean playerData) {
@@ -315,32 +430,45 @@ public class BackupService {
 
         server.stop(false).complete();
 
-        File backupLocation = Path.of(Node.INSTANCE.getBackupPath(), server.getServerId(), backup.getName() + ".zip").toFile();
-
         //TODO find a better way to handle different save locations for different game servers then hardcoding it here
         File saveLocation = new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks" + (server instanceof AsaServer ? "/" + server.getSettings().getMap() : ""));
 
-        if (!backupLocation.exists()) {
-            throw new IllegalStateException("Backup file does not exist: " + backupLocation.getAbsolutePath());
-        }
-
         if (!saveLocation.exists()) {
             throw new IllegalStateException("Server save location does not exist: " + saveLocation.getAbsolutePath());
         }
 
+        BackupIndexModel.BackupChainEntry chainEntry = BackupIndex.getChainEntry(backupId);
+        Backup parentBackup = null;
+        if (chainEntry != null && chainEntry.getParentBackupId() != null) {
+            parentBackup = backups.get(chainEntry.getParentBackupId());
+            if (parentBackup == null) {
+                throw new IllegalStateException("Full backup " + chainEntry.getParentBackupId() + " of incremental backup " + backupId + " does not exist.");
+            }
+        }
+
+        // Check everything that is needed before the current save files are touched
+        for (Backup requiredBackup : parentBackup != null ? List.of(parentBackup, backup) : List.of(backup)) {
+            File backupLocation = getBackupFile(requiredBackup, server);
+            if (!DedupBackupStore.hasBackup(requiredBackup.getBackupId()) && !backupLocation.exists()) {
+                throw new IllegalStateException("Backup file does not exist: " + backupLocation.getAbsolutePath());
+            }
+        }
+
         try {
             if (playerData) {
-                File[] playerDataFiles = saveLocation.listFiles();
-                if (playerDataFiles != null) {
-                    for (File playerDataFile : playerDataFiles) {
-                        if (!playerDataFile.delete()) {
-                            // Non-fatal: try to continue and let Zip overwrite
-                        }
-                    }
+                clearSaveLocation(saveLocation);
+            }
+
+            // An incremental backup is restored on top of its full backup
+            if (parentBackup != null) {
+                extractBackup(parentBackup, server, saveLocation, playerData);
+            }
+            extractBackup(backup, server, saveLocation, playerData);
+
+            if (parentBackup != null && playerData && chainEntry.getDeletedFiles() != null) {
+                for (String deletedFile : chainEntry.getDeletedFiles()) {
+                    Files.deleteIfExists(saveLocation.toPath().resolve(deletedFile));
                 }
-                ZipUtil.unpack(backupLocation, saveLocation);
-            } else {
-                ZipUtil.unpackEntry(backupLocation, server.getSettings().getMap() + ".ark", new File(saveLocation + "/" + server.getSettings().getMap() + ".ark"));
             }
         } catch (Exception e) {
             throw new RuntimeException("Rollback failed for backup '" + backupId + "': " + e.getMessage(), e);
@@ -348,6 +476,37 @@ public class BackupService {
 
     }
 
+    private static void extractBackup(Backup backup, GameServer server, File saveLocation, boolean playerData) throws IOException {
+        String mapSaveName = server.getSettings().getMap() + ".ark";
+
+        if (DedupBackupStore.hasBackup(backup.getBackupId())) {
+            DedupBackupStore.restoreBackup(backup.getBackupId(), saveLocation.toPath(), entryName -> playerData || entryName.equals(mapSaveName));
+            return;
+        }
+
+        File backupLocation = getBackupFile(backup, server);
+        if (playerData) {
+            ZipUtil.unpack(backupLocation, saveLocation);
+        } else if (ZipUtil.containsEntry(backupLocation, mapSaveName)) {
+            ZipUtil.unpackEntry(backupLocation, mapSaveName, new File(saveLocation + "/" + mapSaveName));
+        }
+    }
+
+    private static File getBackupFile(Backup backup, GameServer server) {
+        return Path.of(Node.INSTANCE.getBackupPath(), server.getServerId(), backup.getName() + ".zip").toFile();
+    }
+
+    private static void clearSaveLocation(File saveLocation) {
+        File[] playerDataFiles = saveLocation.listFiles();
+        if (playerDataFiles != null) {
+            for (File playerDataFile : playerDataFiles) {
+                if (!playerDataFile.delete()) {
+                    // Non-fatal: try to continue and let the restore overwrite
+                }
+            }
+        }
+    }
+
     public static void backupAllServers(boolean autoBackup) {
 
         if (backupsSuspended) {
@@ -375,12 +534,20 @@ public class BackupService {
     }
 
     public static void deleteAllBackupsByServer(GameServer server) {
-        getBackupsByServer(server).forEach(backup -> deleteBackup(backup.getBackupId()));
+        List<String> deletedBackupIds = new ArrayList<>();
+        getBackupsByServer(server).forEach(backup -> {
+            if (!deletedBackupIds.contains(backup.getBackupId())) {
+                deleteBackupFiles(backup, deletedBackupIds);
+            }
+        });
+        forgetBackups(deletedBackupIds);
+        BackupIndex.removeServer(server.getServerId());
     }
 
     public static void suspendBackups() {
         log.info("Suspending backups and auto-backup schedulers...");
         backupsSuspended = true;
+        BackupExpiryIndex.setPaused(true);
         if (backupSchedulers != null) {
             backupSchedulers.values().forEach(s -> {
                 try {
@@ -395,6 +562,7 @@ public class BackupService {
     public static void resumeBackups() {
         log.info("Resuming backups and restoring auto-backup schedulers...");
         backupsSuspended = false;
+        BackupExpiryIndex.setPaused(false);
         // Recreate auto-backup schedulers for all servers based on their settings
         GameServer.getAllServers().forEach(server -> updateAutoBackupSettings(server.getServerId()));
     }
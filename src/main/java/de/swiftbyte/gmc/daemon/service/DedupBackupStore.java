@@ -0,0 +1,311 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.Node;
+import de.swiftbyte.gmc.daemon.cache.BackupManifest;
+import de.swiftbyte.gmc.daemon.utils.BackupArchiveUtils;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed backup store shared by all servers of the node.
+ * <p>
+ * Save files are split into fixed-size chunks which are stored deflated under their SHA-256, so a chunk that is
+ * part of many backups (e.g. an unchanged profile file) is only stored once. Every backup is described by a manifest
+ * listing the chunks of its files. Chunks are reference counted over all manifests and deleted with the last
+ * backup that uses them.
+ */
+@Slf4j
+public class DedupBackupStore {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+
+    // Backups and restores share the store, deletions need it exclusively to collect unreferenced chunks safely
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+
+    // Built lazily from all manifests the first time a backup is deleted
+    private static HashMap<String, Integer> referenceCounts;
+
+    public static boolean hasBackup(String backupId) {
+        return Files.exists(getManifestPath(backupId));
+    }
+
+    /**
+     * Stores the given save files and writes the manifest of the backup.
+     *
+     * @return the number of bytes the backup added to the store
+     */
+    public static long storeBackup(String backupId, String serverId, List<BackupArchiveUtils.SaveFile> saveFiles, int deflaterLevel) throws IOException {
+        LOCK.readLock().lock();
+        Deflater deflater = new Deflater(deflaterLevel);
+        try {
+            MessageDigest digest = createDigest();
+            byte[] buffer = new byte[CHUNK_SIZE];
+            byte[] compressed = new byte[CHUNK_SIZE + (CHUNK_SIZE >> 8) + 64];
+
+            long addedBytes = 0;
+            List<BackupManifest.ManifestFile> files = new ArrayList<>();
+
+            for (BackupArchiveUtils.SaveFile saveFile : saveFiles) {
+                List<String> chunks = new ArrayList<>();
+                long remaining = saveFile.size();
+
+                // Only the listed size is read, so content appended after the snapshot does not end up in the backup
+                try (InputStream in = Files.newInputStream(saveFile.path())) {
+                    while (remaining > 0) {
+                        int length = in.readNBytes(buffer, 0, (int) Math.min(CHUNK_SIZE, remaining));
+                        if (length == 0) {
+                            log.warn("Save file '{}' changed while it was backed up.", saveFile.entryName());
+                            break;
+                        }
+                        remaining -= length;
+
+                        digest.update(buffer, 0, length);
+                        String hash = HexFormat.of().formatHex(digest.digest());
+                        chunks.add(hash);
+                        addedBytes += writeChunk(hash, buffer, length, deflater, compressed);
+                    }
+                }
+
+                files.add(BackupManifest.ManifestFile.builder()
+                        .name(saveFile.entryName())
+                        .size(saveFile.size() - remaining)
+                        .lastModified(saveFile.lastModified())
+                        .chunks(chunks)
+                        .build());
+            }
+
+            BackupManifest manifest = BackupManifest.builder().backupId(backupId).serverId(serverId).files(files).build();
+            writeManifest(manifest);
+
+            synchronized (DedupBackupStore.class) {
+                if (referenceCounts != null) {
+                    forEachChunk(manifest, hash -> referenceCounts.merge(hash, 1, Integer::sum));
+                }
+            }
+
+            log.debug("Stored backup '{}' with {} files, {} bytes were new.", backupId, files.size(), addedBytes);
+            return addedBytes;
+        } finally {
+            deflater.end();
+            LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restores the files of a backup whose name matches the filter into the target directory.
+     */
+    public static void restoreBackup(String backupId, Path target, Predicate<String> filter) throws IOException {
+        LOCK.readLock().lock();
+        Inflater inflater = new Inflater();
+        try {
+            BackupManifest manifest = readManifest(getManifestPath(backupId));
+            Path targetDirectory = target.toAbsolutePath().normalize();
+            MessageDigest digest = createDigest();
+            // One spare byte, so the end of a full chunk can be inflated without running out of space
+            byte[] buffer = new byte[CHUNK_SIZE + 1];
+
+            for (BackupManifest.ManifestFile file : manifest.getFiles()) {
+                if (!filter.test(file.getName())) {
+                    continue;
+                }
+
+                Path output = targetDirectory.resolve(file.getName()).normalize();
+                if (!output.startsWith(targetDirectory)) {
+                    throw new IOException("Backup entry '" + file.getName() + "' points outside of the target directory.");
+                }
+                Files.createDirectories(output.getParent());
+
+                try (OutputStream out = Files.newOutputStream(output)) {
+                    for (String hash : file.getChunks()) {
+                        int length = readChunk(hash, inflater, digest, buffer);
+                        out.write(buffer, 0, length);
+                    }
+                }
+                Files.setLastModifiedTime(output, FileTime.fromMillis(file.getLastModified()));
+            }
+        } finally {
+            inflater.end();
+            LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the manifest of a backup and every chunk that is no longer referenced afterwards.
+     */
+    public static void deleteBackup(String backupId) throws IOException {
+        LOCK.writeLock().lock();
+        try {
+            Path manifestPath = getManifestPath(backupId);
+            if (!Files.exists(manifestPath)) {
+                return;
+            }
+
+            ensureReferenceCounts();
+            BackupManifest manifest = readManifest(manifestPath);
+            Files.delete(manifestPath);
+
+            int deletedChunks = 0;
+            for (BackupManifest.ManifestFile file : manifest.getFiles()) {
+                for (String hash : file.getChunks()) {
+                    int count = referenceCounts.merge(hash, -1, Integer::sum);
+                    if (count <= 0) {
+                        referenceCounts.remove(hash);
+                        Files.deleteIfExists(getChunkPath(hash));
+                        deletedChunks++;
+                    }
+                }
+            }
+            log.debug("Deleted backup '{}' from the store, {} chunks were freed.", backupId, deletedChunks);
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    private static long writeChunk(String hash, byte[] data, int length, Deflater deflater, byte[] compressed) throws IOException {
+        Path chunkPath = getChunkPath(hash);
+        if (Files.exists(chunkPath)) {
+            return 0;
+        }
+
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        // Two servers may store the same chunk at once, both write identical content so the last move simply wins
+        Files.createDirectories(chunkPath.getParent());
+        Path tempFile = Files.createTempFile(chunkPath.getParent(), hash, ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            out.write(compressed, 0, compressedLength);
+        }
+        Files.move(tempFile, chunkPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return compressedLength;
+    }
+
+    private static int readChunk(String hash, Inflater inflater, MessageDigest digest, byte[] buffer) throws IOException {
+        Path chunkPath = getChunkPath(hash);
+        if (!Files.exists(chunkPath)) {
+            throw new IOException("Backup chunk " + hash + " is missing.");
+        }
+
+        inflater.reset();
+        inflater.setInput(Files.readAllBytes(chunkPath));
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer, length, buffer.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary() || length == buffer.length)) {
+                    break;
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Backup chunk " + hash + " is corrupt.", e);
+        }
+
+        digest.update(buffer, 0, length);
+        if (!inflater.finished() || !HexFormat.of().formatHex(digest.digest()).equals(hash)) {
+            throw new IOException("Backup chunk " + hash + " is corrupt.");
+        }
+        return length;
+    }
+
+    private static void ensureReferenceCounts() throws IOException {
+        if (referenceCounts != null) {
+            return;
+        }
+
+        HashMap<String, Integer> counts = new HashMap<>();
+        Path manifestDirectory = getStorePath().resolve("manifests");
+        if (Files.isDirectory(manifestDirectory)) {
+            try (Stream<Path> manifests = Files.list(manifestDirectory)) {
+                for (Path manifestPath : manifests.filter(path -> path.toString().endsWith(".json")).toList()) {
+                    forEachChunk(readManifest(manifestPath), hash -> counts.merge(hash, 1, Integer::sum));
+                }
+            }
+        }
+
+        synchronized (DedupBackupStore.class) {
+            referenceCounts = counts;
+        }
+        log.debug("Counted references of {} backup chunks.", counts.size());
+
+        // Chunks of backups that failed before their manifest was written are not referenced by anything
+        Path chunkDirectory = getStorePath().resolve("chunks");
+        if (Files.isDirectory(chunkDirectory)) {
+            try (Stream<Path> chunks = Files.walk(chunkDirectory)) {
+                for (Path chunk : chunks.filter(Files::isRegularFile).toList()) {
+                    if (!counts.containsKey(chunk.getFileName().toString())) {
+                        log.debug("Deleting orphaned backup chunk '{}'.", chunk.getFileName());
+                        Files.deleteIfExists(chunk);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void forEachChunk(BackupManifest manifest, Consumer<String> action) {
+        manifest.getFiles().forEach(file -> file.getChunks().forEach(action));
+    }
+
+    private static BackupManifest readManifest(Path manifestPath) throws IOException {
+        if (!Files.exists(manifestPath)) {
+            throw new IOException("Backup manifest '" + manifestPath + "' does not exist.");
+        }
+        return MapperUtils.readerFor(BackupManifest.class).readValue(manifestPath.toFile());
+    }
+
+    private static void writeManifest(BackupManifest manifest) throws IOException {
+        Path manifestPath = getManifestPath(manifest.getBackupId());
+        Files.createDirectories(manifestPath.getParent());
+
+        Path tempFile = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        MapperUtils.writerFor(BackupManifest.class).writeValue(tempFile.toFile(), manifest);
+        Files.move(tempFile, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static Path getStorePath() {
+        return Path.of(Node.INSTANCE.getBackupPath(), ".dedup");
+    }
+
+    private static Path getManifestPath(String backupId) {
+        return getStorePath().resolve("manifests").resolve(backupId + ".json");
+    }
+
+    private static Path getChunkPath(String hash) {
+        return getStorePath().resolve("chunks").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+}
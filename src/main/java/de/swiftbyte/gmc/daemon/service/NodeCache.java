@@ -0,0 +1,218 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.common.entity.GameType;
+import de.swiftbyte.gmc.daemon.Application;
+import de.swiftbyte.gmc.daemon.Node;
+import de.swiftbyte.gmc.daemon.cache.CacheModel;
+import de.swiftbyte.gmc.daemon.cache.GameServerCacheModel;
+import de.swiftbyte.gmc.daemon.metrics.Counter;
+import de.swiftbyte.gmc.daemon.metrics.Histogram;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Span;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import de.swiftbyte.gmc.daemon.metrics.events.CacheWriteEvent;
+import de.swiftbyte.gmc.daemon.server.AseServer;
+import de.swiftbyte.gmc.daemon.server.GameServer;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import de.swiftbyte.gmc.daemon.utils.ConnectionState;
+import de.swiftbyte.gmc.daemon.utils.PathValidationUtils;
+import de.swiftbyte.gmc.daemon.utils.PersistenceFormat;
+import de.swiftbyte.gmc.daemon.utils.PersistenceUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory view and write-behind persistence of the node cache ({@code cache.json} or {@code cache.smile}).
+ * <p>
+ * The file is parsed once on first access and afterwards only replaced by what was written, so lookups during
+ * startup and login never touch the disk. Callers only mark the node or single servers as dirty. Changes are
+ * coalesced for a short delay and then written in one go, rebuilding only the entries of servers that actually
+ * changed. If the serialized cache is identical to the last write, nothing is written at all. Writes go through a
+ * temporary file and an atomic rename, so a crash never leaves a truncated cache behind.
+ */
+@Slf4j
+public class NodeCache {
+
+    // Stored as cache.json or cache.smile depending on the configured persistence format
+    private static final String CACHE_NAME = "./cache";
+
+    private static final HashMap<String, GameServerCacheModel> SERVERS = new HashMap<>();
+    private static final HashSet<String> DIRTY_SERVERS = new HashSet<>();
+
+    private static final Timer WRITE_TIMER = MetricsRegistry.timer("gmc_cache_write_seconds", "Duration of serialising and writing the node cache.");
+    private static final Histogram WRITE_BYTES = MetricsRegistry.histogram("gmc_cache_write_bytes", "Size of written node caches.", new double[]{1024, 4096, 16384, 65536, 262144, 1048576});
+    private static final Counter SKIPPED_WRITES = MetricsRegistry.counter("gmc_cache_writes_skipped_total", "Cache writes skipped because the content did not change.");
+
+    private static CacheModel cacheModel;
+    private static boolean cacheLoaded;
+
+    private static boolean nodeDirty;
+    private static ScheduledFuture<?> pendingWrite;
+    private static byte[] lastWritten;
+    private static PersistenceFormat lastWrittenFormat;
+
+    /**
+     * @return the last persisted state of the node, or null if there is no cache yet
+     */
+    public static synchronized CacheModel getCacheModel() {
+        if (!cacheLoaded) {
+            cacheModel = load();
+            cacheLoaded = true;
+        }
+        return cacheModel;
+    }
+
+    /**
+     * @return the last persisted state of the server, or null if it is not cached
+     */
+    public static synchronized GameServerCacheModel getServer(String serverId) {
+        CacheModel model = getCacheModel();
+        if (model == null || model.getGameServerCacheModelHashMap() == null) {
+            return null;
+        }
+        return model.getGameServerCacheModelHashMap().get(serverId);
+    }
+
+    public static synchronized void markNodeDirty() {
+        nodeDirty = true;
+        scheduleWrite();
+    }
+
+    /**
+     * Also used for removed servers, which are dropped from the cache because they cannot be resolved anymore.
+     */
+    public static synchronized void markServerDirty(String serverId) {
+        DIRTY_SERVERS.add(serverId);
+        scheduleWrite();
+    }
+
+    /**
+     * Writes pending changes immediately, e.g. before shutting down.
+     */
+    public static synchronized void flush() {
+        if (pendingWrite != null) {
+            pendingWrite.cancel(false);
+            pendingWrite = null;
+        }
+        write();
+    }
+
+    private static CacheModel load() {
+        PersistenceFormat format = PersistenceUtils.findStoredFormat(CACHE_NAME);
+        if (format == null) {
+            log.debug("No cache file found. Skipping...");
+            return null;
+        }
+
+        try {
+            return format.getReader().readValue(format.resolve(CACHE_NAME).toFile(), CacheModel.class);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while getting cached information.", e);
+            return null;
+        }
+    }
+
+    private static void scheduleWrite() {
+        if (pendingWrite != null && !pendingWrite.isDone()) {
+            return;
+        }
+
+        long delay = ConfigUtils.getInt("cache-write-delay-millis", 2000);
+        pendingWrite = Application.getExecutor().schedule(() -> {
+            synchronized (NodeCache.class) {
+                pendingWrite = null;
+                write();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static void write() {
+        Node node = Node.INSTANCE;
+        if (node == null || node.getConnectionState() == ConnectionState.DELETING) {
+            return;
+        }
+        if (!nodeDirty && DIRTY_SERVERS.isEmpty()) {
+            return;
+        }
+
+        for (String serverId : DIRTY_SERVERS) {
+            GameServerCacheModel model = buildServerModel(GameServer.getServerById(serverId));
+            if (model == null) {
+                SERVERS.remove(serverId);
+            } else {
+                SERVERS.put(serverId, model);
+            }
+        }
+
+        CacheModel model = buildCacheModel(node);
+
+        CacheWriteEvent event = new CacheWriteEvent();
+        try (Span _ = Span.start(WRITE_TIMER, event)) {
+            PersistenceFormat format = PersistenceFormat.getConfigured();
+            byte[] content = format.getWriter().writeValueAsBytes(model);
+            event.bytes = content.length;
+            if (format != lastWrittenFormat || !Arrays.equals(content, lastWritten)) {
+                PersistenceUtils.writeAtomically(CACHE_NAME, format, content);
+                WRITE_BYTES.record(content.length);
+                event.written = true;
+                lastWritten = content;
+                lastWrittenFormat = format;
+                log.debug("Cached information of node and {} servers.", SERVERS.size());
+            } else {
+                SKIPPED_WRITES.increment();
+            }
+            cacheModel = model;
+            cacheLoaded = true;
+            nodeDirty = false;
+            DIRTY_SERVERS.clear();
+        } catch (IOException e) {
+            // Everything stays dirty, so the next change retries the write
+            log.error("An unknown error occurred while caching information.", e);
+        }
+    }
+
+    private static GameServerCacheModel buildServerModel(GameServer gameServer) {
+        if (gameServer == null) {
+            return null;
+        }
+        if (gameServer.getInstallDir() == null) {
+            log.error("Install directory is null for game server '{}'. Skipping...", gameServer.getFriendlyName());
+            return null;
+        }
+
+        GameType gameType = GameType.ARK_ASCENDED;
+        if (gameServer instanceof AseServer) {
+            gameType = GameType.ARK_EVOLVED;
+        }
+
+        return GameServerCacheModel.builder()
+                .friendlyName(gameServer.getFriendlyName())
+                .gameType(gameType)
+                .installDir(gameServer.getInstallDir().toString())
+                .settings(gameServer.getSettings())
+                .build();
+    }
+
+    private static CacheModel buildCacheModel(Node node) {
+        String defaultServers = node.getDefaultServerDirectory() != null
+                ? node.getDefaultServerDirectory().normalize().toString()
+                : PathValidationUtils.canonicalizeOrAbsolute("./servers");
+
+        return CacheModel.builder()
+                .nodeName(node.getNodeName())
+                .teamName(node.getTeamName())
+                .serverPath(node.getServerPath())
+                .defaultServerDirectory(defaultServers)
+                .backupPath(node.getBackupPath())
+                .isAutoUpdateEnabled(node.isAutoUpdateEnabled())
+                .gameServerCacheModelHashMap(new HashMap<>(SERVERS))
+                .manageFirewallAutomatically(node.isManageFirewallAutomatically())
+                .build();
+    }
+}
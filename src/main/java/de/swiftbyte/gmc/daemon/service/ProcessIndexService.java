@@ -0,0 +1,127 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Span;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import de.swiftbyte.gmc.daemon.metrics.events.ProcessScanEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SystemUtils;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Serves process lookups of all game servers from one shared snapshot of the process table.
+ * <p>
+ * Walking {@link ProcessHandle#allProcesses()} and querying the command of every process is expensive, so the
+ * snapshot is taken at most once per {@link #MAX_SNAPSHOT_AGE_MILLIS} and indexed by the directory of the executable.
+ */
+@Slf4j
+public class ProcessIndexService {
+
+    private static final long MAX_SNAPSHOT_AGE_MILLIS = 5000;
+
+    private static final Timer SCAN_TIMER = MetricsRegistry.timer("gmc_process_scan_seconds", "Duration of a scan of the process table.");
+
+    private static volatile Snapshot snapshot;
+
+    public static Optional<ProcessHandle> findProcessInDirectory(Path directory) {
+        String key = toKey(directory.toString());
+        if (key == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getSnapshot().byDirectory().get(key)).filter(ProcessHandle::isAlive);
+    }
+
+    public static String getProcessPIDInDirectory(Path directory) {
+        return findProcessInDirectory(directory).map(handle -> String.valueOf(handle.pid())).orElse(null);
+    }
+
+    /**
+     * Finds the first process whose command contains the given string. Directory lookups are answered from the
+     * index, anything else falls back to scanning the snapshot in memory.
+     */
+    public static String getProcessPID(String command) {
+        String key = toKey(command);
+        Snapshot current = getSnapshot();
+
+        ProcessHandle handle = key != null ? current.byDirectory().get(key) : null;
+        if (handle == null) {
+            handle = current.processes().stream()
+                    .filter(process -> process.command().contains(command))
+                    .map(IndexedProcess::handle)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        return handle != null && handle.isAlive() ? String.valueOf(handle.pid()) : null;
+    }
+
+    /**
+     * Forces the next lookup to take a fresh snapshot, e.g. after a process was started or killed.
+     */
+    public static void invalidate() {
+        snapshot = null;
+    }
+
+    private static Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.takenAt() < MAX_SNAPSHOT_AGE_MILLIS) {
+            return current;
+        }
+
+        synchronized (ProcessIndexService.class) {
+            current = snapshot;
+            if (current == null || System.currentTimeMillis() - current.takenAt() >= MAX_SNAPSHOT_AGE_MILLIS) {
+                current = takeSnapshot();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private static Snapshot takeSnapshot() {
+        long start = System.nanoTime();
+
+        HashMap<String, ProcessHandle> byDirectory = new HashMap<>();
+        ArrayList<IndexedProcess> processes = new ArrayList<>();
+
+        ProcessScanEvent event = new ProcessScanEvent();
+        try (Span _ = Span.start(SCAN_TIMER, event)) {
+            ProcessHandle.allProcesses().forEach(handle -> handle.info().command().ifPresent(command -> {
+                processes.add(new IndexedProcess(command, handle));
+
+                String key = toKey(command);
+                int separator = key != null ? Math.max(key.lastIndexOf('/'), key.lastIndexOf('\\')) : -1;
+                if (separator > 0) {
+                    // Keep the first process per directory, like the former linear search did
+                    byDirectory.putIfAbsent(key.substring(0, separator), handle);
+                }
+            }));
+            event.processCount = processes.size();
+        }
+
+        log.debug("Indexed {} processes in {} ms.", processes.size(), (System.nanoTime() - start) / 1_000_000);
+        return new Snapshot(System.currentTimeMillis(), byDirectory, processes);
+    }
+
+    private static String toKey(String path) {
+        try {
+            String key = Path.of(path).normalize().toString();
+            return SystemUtils.IS_OS_WINDOWS ? key.toLowerCase(Locale.ROOT) : key;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private record Snapshot(long takenAt, HashMap<String, ProcessHandle> byDirectory, List<IndexedProcess> processes) {
+    }
+
+    private record IndexedProcess(String command, ProcessHandle handle) {
+    }
+}
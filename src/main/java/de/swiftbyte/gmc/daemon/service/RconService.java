@@ -0,0 +1,169 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.metrics.Counter;
+import de.swiftbyte.gmc.daemon.metrics.Metric;
+import de.swiftbyte.gmc.daemon.metrics.MetricsHistory;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import de.swiftbyte.gmc.daemon.metrics.events.RconCommandEvent;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import de.swiftbyte.gmc.daemon.utils.rcon.RconAuthenticationException;
+import de.swiftbyte.gmc.daemon.utils.rcon.RconClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps one authenticated RCON connection per game server open and reuses it for every command.
+ * Stale connections are replaced transparently, so callers only see a failure when the server is really unreachable.
+ */
+@Slf4j
+public class RconService {
+
+    private static final ConcurrentHashMap<String, RconSession> SESSIONS = new ConcurrentHashMap<>();
+
+    // Connecting and authenticating blocks, so it must never happen on the caller's thread
+    private static final ExecutorService CONNECT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Timer COMMAND_TIMER = MetricsRegistry.timer("gmc_rcon_command_seconds", "Round-trip time of RCON commands, including connecting if needed.");
+    private static final Counter COMMAND_FAILURES = MetricsRegistry.counter("gmc_rcon_command_failures_total", "RCON commands that failed or timed out.");
+
+    public static Duration getDefaultTimeout() {
+        return Duration.ofSeconds(ConfigUtils.getInt("rcon-timeout-seconds", 10));
+    }
+
+    public static CompletableFuture<String> sendCommandAsync(String serverId, int port, String password, String command) {
+        return sendCommandAsync(serverId, port, password, command, getDefaultTimeout());
+    }
+
+    public static CompletableFuture<String> sendCommandAsync(String serverId, int port, String password, String command, Duration timeout) {
+        RconCommandEvent event = new RconCommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        CompletableFuture<String> result = SESSIONS.computeIfAbsent(serverId, RconSession::new).command(port, password, command, timeout);
+        result.whenComplete((_, throwable) -> {
+            long elapsed = System.nanoTime() - start;
+            COMMAND_TIMER.record(elapsed);
+            if (throwable == null) {
+                MetricsHistory.record(serverId, Metric.RCON_LATENCY, elapsed / 1_000_000.0);
+            } else {
+                COMMAND_FAILURES.increment();
+            }
+
+            if (event.shouldCommit()) {
+                event.serverId = serverId;
+                event.command = command.split(" ", 2)[0];
+                event.success = throwable == null;
+                event.commit();
+            }
+        });
+        return result;
+    }
+
+    public static String sendCommand(String serverId, int port, String password, String command) throws IOException, InterruptedException {
+        try {
+            return sendCommandAsync(serverId, port, password, command).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("RCON command '" + command + "' failed for server " + serverId + ".", e.getCause());
+        }
+    }
+
+    public static void closeSession(String serverId) {
+        RconSession session = SESSIONS.remove(serverId);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    public static void closeAllSessions() {
+        SESSIONS.keySet().forEach(RconService::closeSession);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    private static class RconSession {
+
+        private final String serverId;
+
+        private CompletableFuture<RconClient> connection;
+        private int port;
+        private String password;
+
+        RconSession(String serverId) {
+            this.serverId = serverId;
+        }
+
+        CompletableFuture<String> command(int port, String password, String command, Duration timeout) {
+            CompletableFuture<RconClient> current = connection(port, password, timeout);
+            boolean reused = current.isDone() && !current.isCompletedExceptionally();
+
+            CompletableFuture<String> result = current.thenCompose(client -> client.command(command, timeout));
+            if (!reused) {
+                return result;
+            }
+
+            // A pooled connection may have been closed by the server in the meantime; retry once on a fresh one
+            return result.exceptionallyCompose(throwable -> {
+                Throwable cause = unwrap(throwable);
+                if (!(cause instanceof IOException) || cause instanceof RconAuthenticationException) {
+                    return CompletableFuture.failedFuture(cause);
+                }
+                log.debug("Pooled RCON connection of server {} is stale. Reconnecting...", serverId);
+                invalidate(current);
+                return connection(port, password, timeout).thenCompose(client -> client.command(command, timeout));
+            });
+        }
+
+        private synchronized CompletableFuture<RconClient> connection(int port, String password, Duration timeout) {
+
+            // Credentials changed with the settings, the old connection is useless now
+            if (connection != null && (this.port != port || !password.equals(this.password))) {
+                log.debug("RCON credentials of server {} changed. Reconnecting...", serverId);
+                close();
+            }
+
+            if (connection != null && (connection.isCompletedExceptionally() || (connection.isDone() && connection.join().isClosed()))) {
+                connection = null;
+            }
+
+            if (connection == null) {
+                this.port = port;
+                this.password = password;
+                connection = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return RconClient.connect("127.0.0.1", port, password, timeout);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, CONNECT_EXECUTOR);
+            }
+            return connection;
+        }
+
+        private synchronized void invalidate(CompletableFuture<RconClient> stale) {
+            if (connection == stale) {
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (connection == null) {
+                return;
+            }
+            connection.thenAccept(RconClient::close);
+            connection = null;
+        }
+    }
+}
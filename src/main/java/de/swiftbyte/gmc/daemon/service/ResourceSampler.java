@@ -0,0 +1,279 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.common.entity.ResourceUsage;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.GlobalMemory;
+import oshi.software.os.OSProcess;
+import oshi.software.os.OperatingSystem;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the resource usage of the node and of the process tree of every game server.
+ * <p>
+ * A single OSHI handle is kept for the lifetime of the sampler and CPU usage is derived from the tick deltas between
+ * two samples, so the value describes the last interval instead of the lifetime of a process. The descendants of a
+ * server process are only looked up again every {@code resource-sampler-tree-refresh-millis}; in between only the
+ * known processes are read. Once a sample exceeds {@code resource-sampler-budget-millis}, the remaining servers keep
+ * their previous values and are sampled first next time.
+ * <p>
+ * Like the RAM usage the daemon always reported, all sizes in {@link ResourceUsage} are megabytes. For game servers
+ * {@code diskBytes} is the disk IO of the process tree since the previous sample.
+ */
+@Slf4j
+public class ResourceSampler {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final OperatingSystem operatingSystem;
+    private final CentralProcessor processor;
+    private final GlobalMemory memory;
+    private final int logicalProcessors;
+
+    private final long budgetNanos;
+    private final long treeRefreshNanos;
+    private final int maxProcessesPerServer;
+
+    private long[] previousSystemTicks;
+
+    private final HashMap<String, ServerTree> serverTrees = new HashMap<>();
+    private final ArrayList<String> sampleOrder = new ArrayList<>();
+    private long generation;
+    private int rotation;
+
+    private long lastSampleNanos;
+    private long maxSampleNanos;
+    private long budgetExceeded;
+
+    public ResourceSampler() {
+        SystemInfo systemInfo = new SystemInfo();
+        operatingSystem = systemInfo.getOperatingSystem();
+        processor = systemInfo.getHardware().getProcessor();
+        memory = systemInfo.getHardware().getMemory();
+        logicalProcessors = Math.max(1, processor.getLogicalProcessorCount());
+
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(ConfigUtils.getInt("resource-sampler-budget-millis", 250));
+        treeRefreshNanos = TimeUnit.MILLISECONDS.toNanos(ConfigUtils.getInt("resource-sampler-tree-refresh-millis", 60_000));
+        maxProcessesPerServer = ConfigUtils.getInt("resource-sampler-max-processes-per-server", 16);
+
+        previousSystemTicks = processor.getSystemCpuLoadTicks();
+    }
+
+    /**
+     * Samples CPU and RAM of the whole node and the used space of the disk holding the given directory.
+     */
+    public synchronized ResourceUsage sampleNode(Path diskPath) {
+        ResourceUsage usage = new ResourceUsage();
+        usage.setRamBytes((memory.getTotal() - memory.getAvailable()) / MEGABYTE);
+
+        long[] ticks = processor.getSystemCpuLoadTicks();
+        usage.setCpuPercentage(processor.getSystemCpuLoadBetweenTicks(previousSystemTicks) * 100);
+        previousSystemTicks = ticks;
+
+        try {
+            FileStore store = Files.getFileStore(diskPath);
+            usage.setDiskBytes((store.getTotalSpace() - store.getUnallocatedSpace()) / MEGABYTE);
+        } catch (IOException e) {
+            log.debug("Failed to read disk usage of '{}'.", diskPath, e);
+            usage.setDiskBytes(-1);
+        }
+        return usage;
+    }
+
+    /**
+     * Samples the process trees of the given servers, keyed by server id with the PID of the game process as value.
+     * Servers without a PID report no usage.
+     */
+    public synchronized Map<String, ResourceUsage> sampleServers(Map<String, Long> rootPids) {
+        long start = System.nanoTime();
+        generation++;
+
+        serverTrees.keySet().retainAll(rootPids.keySet());
+        sampleOrder.clear();
+        sampleOrder.addAll(rootPids.keySet());
+
+        HashMap<String, ResourceUsage> result = HashMap.newHashMap(rootPids.size());
+        int skipped = 0;
+        int nextRotation = 0;
+        int count = sampleOrder.size();
+        for (int i = 0; i < count; i++) {
+            String serverId = sampleOrder.get((rotation + i) % count);
+            Long rootPid = rootPids.get(serverId);
+            ServerTree tree = serverTrees.computeIfAbsent(serverId, _ -> new ServerTree());
+
+            if (rootPid == null) {
+                tree.reset();
+                result.put(serverId, new ResourceUsage());
+                continue;
+            }
+
+            if (System.nanoTime() - start > budgetNanos) {
+                if (skipped++ == 0) {
+                    nextRotation = (rotation + i) % count;
+                }
+                result.put(serverId, tree.lastUsage());
+                continue;
+            }
+
+            sampleTree(tree, rootPid.intValue(), start);
+            result.put(serverId, tree.lastUsage());
+        }
+
+        rotation = nextRotation;
+        if (skipped > 0) {
+            budgetExceeded++;
+            log.debug("Resource sampling exceeded its budget. {} servers keep their previous values.", skipped);
+        }
+
+        lastSampleNanos = System.nanoTime() - start;
+        maxSampleNanos = Math.max(maxSampleNanos, lastSampleNanos);
+        return result;
+    }
+
+    public synchronized long getLastSampleNanos() {
+        return lastSampleNanos;
+    }
+
+    public synchronized long getMaxSampleNanos() {
+        return maxSampleNanos;
+    }
+
+    public synchronized long getBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    private void sampleTree(ServerTree tree, int rootPid, long now) {
+        tree.cpuPercentage = 0;
+        tree.residentBytes = 0;
+        tree.ioBytes = 0;
+
+        if (tree.rootPid != rootPid || now - tree.refreshedAt >= treeRefreshNanos) {
+            refreshTree(tree, rootPid, now);
+        } else {
+            sampleKnownProcesses(tree, now);
+        }
+
+        // Forget processes that left the tree
+        tree.ticks.values().removeIf(ticks -> ticks.generation != generation);
+    }
+
+    private void sampleKnownProcesses(ServerTree tree, long now) {
+        for (int i = 0; i < tree.pidCount; i++) {
+            OSProcess process = operatingSystem.getProcess(tree.pids[i]);
+            if (process != null) {
+                accumulate(tree, process, now);
+            } else if (i == 0) {
+                // The game process is gone, there is nothing left to sample
+                break;
+            }
+        }
+    }
+
+    private void refreshTree(ServerTree tree, int rootPid, long now) {
+        tree.rootPid = rootPid;
+        tree.refreshedAt = now;
+        tree.pidCount = 0;
+
+        OSProcess root = operatingSystem.getProcess(rootPid);
+        if (root == null) {
+            return;
+        }
+        tree.addPid(rootPid);
+        accumulate(tree, root, now);
+
+        if (maxProcessesPerServer <= 1) {
+            return;
+        }
+        List<OSProcess> descendants = operatingSystem.getDescendantProcesses(rootPid, null, null, maxProcessesPerServer - 1);
+        for (OSProcess descendant : descendants) {
+            tree.addPid(descendant.getProcessID());
+            accumulate(tree, descendant, now);
+        }
+    }
+
+    private void accumulate(ServerTree tree, OSProcess process, long now) {
+        long cpuMillis = process.getKernelTime() + process.getUserTime();
+        long ioBytes = process.getBytesRead() + process.getBytesWritten();
+
+        ProcessTicks ticks = tree.ticks.get(process.getProcessID());
+        if (ticks == null || ticks.startTime != process.getStartTime()) {
+            // Unknown or reused PID, the lifetime average is the best guess until the next sample
+            ticks = new ProcessTicks();
+            ticks.startTime = process.getStartTime();
+            tree.ticks.put(process.getProcessID(), ticks);
+            tree.cpuPercentage += process.getProcessCpuLoadCumulative() * 100 / logicalProcessors;
+        } else {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - ticks.sampledAt);
+            if (elapsedMillis > 0) {
+                tree.cpuPercentage += (double) Math.max(0, cpuMillis - ticks.cpuMillis) * 100 / elapsedMillis / logicalProcessors;
+            }
+            tree.ioBytes += Math.max(0, ioBytes - ticks.ioBytes);
+        }
+
+        ticks.cpuMillis = cpuMillis;
+        ticks.ioBytes = ioBytes;
+        ticks.sampledAt = now;
+        ticks.generation = generation;
+        tree.residentBytes += process.getResidentSetSize();
+    }
+
+    private static class ProcessTicks {
+
+        private long startTime;
+        private long cpuMillis;
+        private long ioBytes;
+        private long sampledAt;
+        private long generation;
+    }
+
+    private static class ServerTree {
+
+        // Kept per tree, so processes that appear in more than one tree do not disturb each other's deltas
+        private final HashMap<Integer, ProcessTicks> ticks = new HashMap<>();
+
+        private int rootPid = -1;
+        private long refreshedAt;
+        private int[] pids = new int[4];
+        private int pidCount;
+
+        private double cpuPercentage;
+        private long residentBytes;
+        private long ioBytes;
+
+        private void addPid(int pid) {
+            if (pidCount == pids.length) {
+                pids = Arrays.copyOf(pids, pidCount * 2);
+            }
+            pids[pidCount++] = pid;
+        }
+
+        private void reset() {
+            ticks.clear();
+            rootPid = -1;
+            pidCount = 0;
+            cpuPercentage = 0;
+            residentBytes = 0;
+            ioBytes = 0;
+        }
+
+        private ResourceUsage lastUsage() {
+            ResourceUsage usage = new ResourceUsage();
+            usage.setCpuPercentage(cpuPercentage);
+            usage.setRamBytes(residentBytes / MEGABYTE);
+            usage.setDiskBytes(ioBytes / MEGABYTE);
+            return usage;
+        }
+    }
+}
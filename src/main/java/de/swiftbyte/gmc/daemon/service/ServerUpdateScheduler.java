@@ -0,0 +1,160 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.common.entity.GameServerState;
+import de.swiftbyte.gmc.daemon.Application;
+import de.swiftbyte.gmc.daemon.metrics.Metric;
+import de.swiftbyte.gmc.daemon.metrics.MetricsHistory;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Span;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import de.swiftbyte.gmc.daemon.metrics.events.ServerUpdateEvent;
+import de.swiftbyte.gmc.daemon.server.GameServer;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the update loops of all game servers.
+ * <p>
+ * The shared executor is only used as a timer, updates themselves run on virtual threads because they mostly wait
+ * for RCON responses. Every server keeps a random phase and is updated on the slots of that phase, so updates stay
+ * spread over the interval however long each of them takes. The interval depends on the state: initializing servers
+ * are polled often, offline servers rarely.
+ */
+@Slf4j
+public class ServerUpdateScheduler {
+
+    private static final ConcurrentHashMap<String, UpdateLoop> LOOPS = new ConcurrentHashMap<>();
+
+    private static final ExecutorService UPDATE_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Timer UPDATE_TIMER = MetricsRegistry.timer("gmc_server_update_seconds", "Duration of one update of a game server.");
+
+    public static void register(GameServer server) {
+        UpdateLoop loop = new UpdateLoop(server);
+        UpdateLoop previous = LOOPS.put(server.getServerId(), loop);
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        loop.schedule(loop.getDelayToNextSlot(getIntervalMillis(server.getState())));
+    }
+
+    public static void unregister(String serverId) {
+        UpdateLoop loop = LOOPS.remove(serverId);
+        if (loop != null) {
+            loop.cancel();
+        }
+    }
+
+    /**
+     * Moves the next update forward if the new state of the server should be polled more often.
+     */
+    public static void reschedule(String serverId) {
+        UpdateLoop loop = LOOPS.get(serverId);
+        if (loop != null) {
+            loop.reschedule();
+        }
+    }
+
+    private static long getIntervalMillis(GameServerState state) {
+        if (state == null) {
+            return getDefaultIntervalMillis();
+        }
+        return switch (state) {
+            case INITIALIZING, STOPPING -> ConfigUtils.getInt("server-update-interval-initializing-seconds", 3) * 1000L;
+            case OFFLINE, CREATING -> ConfigUtils.getInt("server-update-interval-offline-seconds", 30) * 1000L;
+            default -> getDefaultIntervalMillis();
+        };
+    }
+
+    private static long getDefaultIntervalMillis() {
+        return ConfigUtils.getInt("server-update-interval-seconds", 10) * 1000L;
+    }
+
+    private static class UpdateLoop {
+
+        private final GameServer server;
+
+        // Slots are the points in time congruent to the phase modulo the interval, so one phase fits every interval
+        private final long phase = ThreadLocalRandom.current().nextLong(Integer.MAX_VALUE);
+
+        private ScheduledFuture<?> next;
+        private boolean running;
+        private boolean cancelled;
+
+        UpdateLoop(GameServer server) {
+            this.server = server;
+        }
+
+        synchronized void schedule(long delayMillis) {
+            if (cancelled) {
+                return;
+            }
+            next = Application.getExecutor().schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void reschedule() {
+            if (cancelled || running || next == null) {
+                return;
+            }
+
+            long delay = getDelayToNextSlot(getIntervalMillis(server.getState()));
+            if (next.getDelay(TimeUnit.MILLISECONDS) > delay && next.cancel(false)) {
+                schedule(delay);
+            }
+        }
+
+        long getDelayToNextSlot(long interval) {
+            long delay = Math.floorMod(phase - System.currentTimeMillis(), interval);
+
+            // A slot that is just about to pass would start the next update right after the previous one
+            return delay < interval / 10 ? delay + interval : delay;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+
+        private synchronized void dispatch() {
+            // Never run two updates of the same server at once
+            if (cancelled || running) {
+                return;
+            }
+            running = true;
+            UPDATE_EXECUTOR.execute(this::run);
+        }
+
+        private void run() {
+            try {
+                // Skip update cycle while the server is in CREATING state (used to block operations during moves)
+                if (server.getState() != GameServerState.CREATING) {
+                    ServerUpdateEvent event = new ServerUpdateEvent();
+                    event.serverId = server.getServerId();
+                    long start = System.nanoTime();
+                    try (Span _ = Span.start(UPDATE_TIMER, event)) {
+                        server.update();
+                        event.state = String.valueOf(server.getState());
+                    }
+                    MetricsHistory.record(server.getServerId(), Metric.TICK_DURATION, (System.nanoTime() - start) / 1_000_000.0);
+                }
+            } catch (Exception e) {
+                log.error("Unhandled exception in server '{}'.", server.getFriendlyName(), e);
+            } finally {
+                synchronized (this) {
+                    running = false;
+                    schedule(getDelayToNextSlot(getIntervalMillis(server.getState())));
+                }
+            }
+        }
+    }
+}
@@ -141,9 +141,7 @@ public class TaskService {
             // If someone (e.g., hard cancel) already finalized the task, skip sending completion
             if (task.getFinishedAt() == null) {
                 task.setFinishedAt(Instant.now());
-                NodeTaskCompletePacket completePacket = new NodeTaskCompletePacket();
-                completePacket.setNodeTask(task);
-                StompHandler.send("/app/node/task-complete", completePacket);
+                sendCompletePacket(task);
                 log.debug("Task completed: id={}, type={}, finalState={}", task.getId(), task.getType(), task.getState());
             } else {
                 log.debug("Task {} already finalized (state={}), skipping completion send.", task.getId(), task.getState());
@@ -159,18 +157,14 @@ public class TaskService {
                     task.setState(NodeTask.State.CANCELED);
                     task.setErrorMessage(null);
                     task.setFinishedAt(Instant.now());
-                    NodeTaskCompletePacket completePacket = new NodeTaskCompletePacket();
-                    completePacket.setNodeTask(task);
-                    StompHandler.send("/app/node/task-complete", completePacket);
+                    sendCompletePacket(task);
                     log.debug("Task canceled via interruption: id={}, type={}", task.getId(), task.getType());
                 } else {
                     log.error("An exception occurred while executing task {}", task.getType(), e);
                     task.setState(NodeTask.State.FAILED);
                     task.setErrorMessage(e.getMessage());
                     task.setFinishedAt(Instant.now());
-                    NodeTaskCompletePacket completePacket = new NodeTaskCompletePacket();
-                    completePacket.setNodeTask(task);
-                    StompHandler.send("/app/node/task-complete", completePacket);
+                    sendCompletePacket(task);
                     log.debug("Task failed: id={}, type={}", task.getId(), task.getType());
                 }
             }
@@ -210,11 +204,20 @@ public class TaskService {
         }
     }
 
+    private static void sendCompletePacket(NodeTask task) {
+        // A pending progress update must not arrive after the completion
+        StompHandler.discardNonCritical("/app/node/task-update", task.getId());
+
+        NodeTaskCompletePacket completePacket = new NodeTaskCompletePacket();
+        completePacket.setNodeTask(task);
+        StompHandler.send("/app/node/task-complete", completePacket);
+    }
+
     private static void sendUpdatePacket(NodeTask task) {
         NodeTaskUpdatePacket packet = new NodeTaskUpdatePacket();
         packet.setNodeTask(task);
 
-        StompHandler.sendNonCritical("/app/node/task-update", packet);
+        StompHandler.sendNonCritical("/app/node/task-update", task.getId(), packet);
         log.debug("Task update sent: id={}, state={}, cancellable={}", task.getId(), task.getState(), task.isCancellable());
     }
 
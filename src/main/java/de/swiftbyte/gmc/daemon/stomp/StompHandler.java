@@ -1,20 +1,18 @@
 package de.swiftbyte.gmc.daemon.stomp;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.sun.management.OperatingSystemMXBean;
 import de.swiftbyte.gmc.common.entity.NodeData;
 import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeLoginPacket;
 import de.swiftbyte.gmc.daemon.Application;
 import de.swiftbyte.gmc.daemon.Node;
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
 import de.swiftbyte.gmc.daemon.utils.CommonUtils;
 import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
 import de.swiftbyte.gmc.daemon.utils.ConnectionState;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
 import jakarta.websocket.ContainerProvider;
 import jakarta.websocket.WebSocketContainer;
 import lombok.extern.slf4j.Slf4j;
-import org.reflections.Reflections;
 import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.simp.stomp.ConnectionLostException;
@@ -29,14 +27,15 @@ import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
 import java.lang.management.ManagementFactory;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public class StompHandler {
@@ -44,10 +43,19 @@ public class StompHandler {
     // 2MB
     private static final int MAX_MESSAGE_BUFFER_SIZE_BYTES = 1024 * 1024 * 2;
 
+    // Generated at compile time from all @StompPacketInfo consumers
+    private static final List<StompPacketRegistration> PACKET_CONSUMERS = StompPacketRegistry.getRegistrations();
+
+    // Guards connecting and disconnecting, which may block for a while, without blocking senders
+    private static final Object CONNECT_LOCK = new Object();
+
     private static ThreadPoolTaskScheduler threadPoolTaskScheduler;
     private static WebSocketStompClient stompClient;
-    private static StompSession session;
-    private static ExecutorService sendExecutor; // single-threaded sender
+    private static volatile StompSession session;
+    private static StompOutboundQueue outbound;
+    private static StompOutbox outbox;
+    private static Thread sender;
+    private static StompInboundDispatcher inbound;
 
     private static boolean hasInterruptedCause(Throwable t) {
         Throwable c = t;
@@ -60,9 +68,48 @@ public class StompHandler {
         return false;
     }
 
+    /**
+     * Opens a new session unless the current one is still connected. The WebSocket client and its thread pool are
+     * created once and reused by every reconnect.
+     */
     public static boolean initialiseStomp() {
+        synchronized (CONNECT_LOCK) {
+            if (session != null && session.isConnected()) {
+                return true;
+            }
+            session = null;
+
+            ensureClient();
 
-        disconnect();
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            headers.add("Node-Id", Node.INSTANCE.getNodeId());
+            headers.add("Node-Secret", Node.INSTANCE.getSecret());
+
+            CompletableFuture<StompSession> connecting = stompClient.connectAsync(Application.getWebsocketUrl(), headers, new StompSessionHandler());
+            try {
+                log.debug("Connecting WebSocket to {}", Application.getWebsocketUrl());
+                session = connecting.get(ConfigUtils.getInt("stomp-connect-timeout-millis", 15_000), TimeUnit.MILLISECONDS);
+                ensureSender();
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                connecting.cancel(true);
+
+                if (e.getMessage() != null && e.getMessage().contains("Failed to handle HTTP response code [401]")) {
+                    log.error("Backend rejected connection. When you just deleted the node, please execute the 'delete' command in the daemon console as well.");
+                    return false;
+                }
+
+                log.error("Failed to establish connection to backend. Please check your connection and the status of the backend.");
+                log.debug("Error: ", e);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static void ensureClient() {
+        if (stompClient != null) {
+            return;
+        }
 
         threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
         threadPoolTaskScheduler.setPoolSize(ConfigUtils.getInt("override-stomp-pool-size", 32));
@@ -75,75 +122,210 @@ public class StompHandler {
         stompClient.setTaskScheduler(threadPoolTaskScheduler);
         stompClient.setDefaultHeartbeat(new long[]{10_000, 10_000});
         stompClient.setInboundMessageSizeLimit(MAX_MESSAGE_BUFFER_SIZE_BYTES);
-        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
-        headers.add("Node-Id", Node.INSTANCE.getNodeId());
-        headers.add("Node-Secret", Node.INSTANCE.getSecret());
-
 
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
-        converter.setObjectMapper(new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false).registerModule(new JavaTimeModule()));
+        converter.setObjectMapper(MapperUtils.getMapper());
 
         stompClient.setMessageConverter(converter);
-        try {
-            log.debug("Connecting WebSocket to {}", Application.getWebsocketUrl());
-            session = stompClient.connectAsync(Application.getWebsocketUrl(), headers, new StompSessionHandler()).get();
-            ensureSender();
-            scanForPacketListeners();
-        } catch (InterruptedException | ExecutionException e) {
-
-            if (e.getMessage() != null && e.getMessage().contains("Failed to handle HTTP response code [401]")) {
-                log.error("Backend rejected connection. When you just deleted the node, please execute the 'delete' command in the daemon console as well.");
-                return false;
-            }
+    }
 
-            log.error("Failed to establish connection to backend. Please check your connection and the status of the backend.");
-            log.debug("Error: ", e);
-            return false;
+    private static synchronized StompOutboundQueue ensureSender() {
+        if (outbound == null) {
+            outbound = new StompOutboundQueue(
+                    ConfigUtils.getInt("stomp-critical-queue-capacity", 1024),
+                    ConfigUtils.getInt("stomp-non-critical-queue-capacity", 256));
+            outbox = new StompOutbox(
+                    Boolean.parseBoolean(ConfigUtils.get("stomp-outbox-persistent", "false")),
+                    ConfigUtils.getInt("stomp-outbox-capacity", 5000),
+                    ConfigUtils.getInt("stomp-outbox-segment-size", 1000));
+            outbox.load();
+            registerGauges(outbound, outbox);
+        }
+        if (sender == null) {
+            sender = new Thread(StompHandler::runSender, "stomp-sender");
+            sender.setDaemon(true);
+            sender.start();
+        }
+        return outbound;
+    }
+
+    private static void registerGauges(StompOutboundQueue queue, StompOutbox durable) {
+        MetricsRegistry.gauge("gmc_stomp_queue_depth", "Packets waiting for the sender.", queue::getCriticalDepth, "lane", "critical");
+        MetricsRegistry.gauge("gmc_stomp_queue_depth", "Packets waiting for the sender.", queue::getNonCriticalDepth, "lane", "non-critical");
+        MetricsRegistry.gauge("gmc_stomp_queue_dropped", "Packets dropped because their lane was full.", queue::getDroppedCritical, "lane", "critical");
+        MetricsRegistry.gauge("gmc_stomp_queue_dropped", "Packets dropped because their lane was full.", queue::getDroppedNonCritical, "lane", "non-critical");
+        MetricsRegistry.gauge("gmc_stomp_queue_spilled", "Critical packets moved to the outbox because their lane was full.", queue::getSpilledCritical);
+        MetricsRegistry.gauge("gmc_stomp_queue_coalesced", "Non-critical packets replaced by a newer one.", queue::getCoalesced);
+        MetricsRegistry.gauge("gmc_stomp_outbox_size", "Packets kept while disconnected, replayed after the next login.", durable::size);
+    }
+
+    private static synchronized StompInboundDispatcher ensureInbound() {
+        if (inbound == null) {
+            inbound = new StompInboundDispatcher(ConfigUtils.getInt("stomp-slow-consumer-millis", 5000));
         }
-        return true;
+        return inbound;
     }
 
-    private static synchronized void ensureSender() {
-        if (sendExecutor == null) {
-            sendExecutor = Executors.newSingleThreadExecutor(r -> {
-                Thread t = new Thread(r, "stomp-sender");
-                t.setDaemon(true);
-                return t;
-            });
+    private static void runSender() {
+        while (true) {
+            Runnable task;
+            try {
+                task = outbound.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Unhandled exception in STOMP sender.", e);
+            }
         }
     }
 
+    /**
+     * Sends a packet that must not be lost, e.g. task completions and backup responses. If the daemon is
+     * disconnected, the packet is kept in the outbox and replayed after the next login. If the sender falls too far
+     * behind, the oldest packets move to the outbox as well instead of being dropped.
+     */
     public static void send(String destination, Object payload) {
-        ensureSender();
-        sendExecutor.execute(() -> doSend(destination, payload));
+        send(destination, null, payload);
     }
 
+    /**
+     * Like {@link #send(String, Object)}, but a packet still waiting in the outbox is replaced by a newer one with
+     * the same destination and key, e.g. the state of a server.
+     */
+    public static void send(String destination, String key, Object payload) {
+        ensureSender().submitCritical(() -> sendDurable(destination, key, payload), () -> spill(destination, key, payload));
+    }
+
+    /**
+     * Sends a packet that only makes sense on the current connection, e.g. login and logout. It is dropped if the
+     * daemon is disconnected.
+     */
+    public static void sendVolatile(String destination, Object payload) {
+        ensureSender().submitCritical(() -> doSend(destination, payload));
+    }
+
+    /**
+     * Sends a packet that is superseded by the next one with the same destination, e.g. heartbeats.
+     */
     public static void sendNonCritical(String destination, Object payload) {
-        // For now, same as send; could apply drop/merge policy later
-        send(destination, payload);
+        sendNonCritical(destination, null, payload);
+    }
+
+    /**
+     * Sends a packet that is superseded by the next one with the same destination and key. Only the latest pending
+     * packet per key is sent.
+     */
+    public static void sendNonCritical(String destination, String key, Object payload) {
+        sendNonCritical(destination, key, payload, null);
+    }
+
+    /**
+     * Like {@link #sendNonCritical(String, String, Object)}, but runs {@code onDelivered} on the sender thread once
+     * the packet was handed to the session. It never runs if the packet was superseded or could not be sent.
+     */
+    public static void sendNonCritical(String destination, String key, Object payload, Runnable onDelivered) {
+        ensureSender().submitNonCritical(coalescingKey(destination, key), () -> {
+            if (doSend(destination, payload) && onDelivered != null) {
+                onDelivered.run();
+            }
+        });
+    }
+
+    public static void discardNonCritical(String destination, String key) {
+        ensureSender().discardNonCritical(coalescingKey(destination, key));
     }
 
-    private static void doSend(String destination, Object payload) {
+    /**
+     * Replays the packets kept while disconnected. Must be called once the backend acknowledged the login.
+     */
+    public static void replayOutbox() {
+        StompOutboundQueue queue = ensureSender();
+        queue.submitCritical(StompHandler::replay, () -> queue.submitControl(StompHandler::replay));
+    }
+
+    public static OutboundMetrics getOutboundMetrics() {
+        StompOutboundQueue queue = ensureSender();
+        return new OutboundMetrics(queue.getCriticalDepth(), queue.getNonCriticalDepth(), queue.getDroppedCritical(), queue.getDroppedNonCritical(), queue.getCoalesced(), outbox.size());
+    }
+
+    /**
+     * Returns the run time statistics of every packet consumer, keyed by consumer name.
+     */
+    public static Map<String, ConsumerTiming> getConsumerTimings() {
+        return ensureInbound().getTimings();
+    }
+
+    private static void sendDurable(String destination, String key, Object payload) {
+        // While older packets wait for their replay, newer ones have to queue up behind them to keep the order
+        if (outbox.isEmpty() && doSend(destination, payload)) {
+            return;
+        }
+
+        if (Node.INSTANCE.getConnectionState() != ConnectionState.DELETING) {
+            log.debug("Keeping packet to {} in the outbox until the connection is restored.", destination);
+            outbox.store(destination, key, payload);
+        }
+    }
+
+    // Called with the oldest packet of the full critical lane, which is replayed before the ones queued behind it
+    private static void spill(String destination, String key, Object payload) {
+        if (Node.INSTANCE.getConnectionState() == ConnectionState.DELETING) {
+            return;
+        }
+
+        outbox.store(destination, key, payload);
+        if (Node.INSTANCE.getConnectionState() == ConnectionState.CONNECTED) {
+            outbound.submitControl(StompHandler::replay);
+        }
+    }
+
+    private static void replay() {
+        int total = outbox.size();
+        if (total == 0) {
+            return;
+        }
+
+        log.info("Replaying {} packets that were held back while disconnected...", total);
+        StompOutbox.Entry entry;
+        while ((entry = outbox.peek()) != null) {
+            if (!doSend(entry.destination(), entry.payload())) {
+                log.warn("Connection lost while replaying the outbox. {} packets remain.", outbox.size());
+                return;
+            }
+            outbox.remove(entry);
+        }
+    }
+
+    private static String coalescingKey(String destination, String key) {
+        return key == null ? destination : destination + "#" + key;
+    }
+
+    private static boolean doSend(String destination, Object payload) {
         if (session == null) {
             if (Node.INSTANCE.getConnectionState() != ConnectionState.RECONNECTING) {
                 log.error("Failed to send packet to {} because the session is null.", destination);
                 Node.INSTANCE.setConnectionState(ConnectionState.RECONNECTING);
             }
-            return;
+            return false;
         }
 
         if (!session.isConnected()) {
             log.error("Failed to send packet to {} because the session is not connected.", destination);
             Node.INSTANCE.setConnectionState(ConnectionState.RECONNECTING);
-            return;
+            return false;
         }
 
         try {
             session.send(destination, payload);
+            return true;
         } catch (MessageDeliveryException e) {
             if (hasInterruptedCause(e)) {
                 log.debug("Send to {} aborted due to interrupt; not marking connection lost.", destination);
-                return;
+                return false;
             }
             log.error("Failed to deliver packet to {}.", destination, e);
             Node.INSTANCE.setConnectionState(ConnectionState.RECONNECTING);
@@ -151,64 +333,60 @@ public class StompHandler {
             log.error("Failed to send packet to {}.", destination, e);
             Node.INSTANCE.setConnectionState(ConnectionState.RECONNECTING);
         }
+        return false;
     }
 
+    /**
+     * Closes the current session. The client is kept, so a later {@link #initialiseStomp()} only opens a new session.
+     */
     public static void disconnect() {
-        if (session != null && session.isConnected()) {
-            session.disconnect();
+        synchronized (CONNECT_LOCK) {
+            if (session != null && session.isConnected()) {
+                session.disconnect();
+            }
             session = null;
         }
+    }
 
-        if (stompClient != null && stompClient.isRunning()) {
-            stompClient.stop();
-            stompClient = null;
-        }
-
-        if (threadPoolTaskScheduler != null && threadPoolTaskScheduler.isRunning()) {
-            threadPoolTaskScheduler.shutdown();
-            threadPoolTaskScheduler = null;
+    /**
+     * Queues the subscriptions of all packet consumers on the given session. They bypass the bounded lanes, so a
+     * backlog can never evict them, and are skipped if that session was closed before the sender got to them. A
+     * failed subscription marks the connection as broken, since the consumer would otherwise never receive anything.
+     */
+    private static void subscribePacketConsumers(StompSession connected) {
+        StompInboundDispatcher dispatcher = ensureInbound();
+        for (StompPacketRegistration registration : PACKET_CONSUMERS) {
+            for (String path : registration.paths()) {
+                ensureSender().submitControl(() -> {
+                    if (!connected.isConnected()) {
+                        log.debug("Skipping subscription to {} because its session is closed.", path);
+                        return;
+                    }
+                    try {
+                        connected.subscribe(path, new StompFrameHandler() {
+                            @Override
+                            public Type getPayloadType(StompHeaders headers) {
+                                return registration.packetClass();
+                            }
+
+                            @Override
+                            public void handleFrame(StompHeaders headers, Object payload) {
+                                dispatcher.dispatch(registration, payload);
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        log.error("Failed to subscribe to {}. Reconnecting...", path, e);
+                        Node.INSTANCE.setConnectionState(ConnectionState.RECONNECTING);
+                    }
+                });
+            }
         }
     }
 
-    private static void scanForPacketListeners() {
-
-        Reflections reflections = new Reflections(Application.class.getPackageName().split("\\.")[0]);
-
-        reflections.getTypesAnnotatedWith(StompPacketInfo.class).forEach(clazz -> {
-
-            if (StompPacketConsumer.class.isAssignableFrom(clazz)) {
-
-                StompPacketInfo annotation = clazz.getAnnotation(StompPacketInfo.class);
-                StompPacketConsumer<Object> packetConsumer;
-
-                try {
-                    Constructor<?> constructor = clazz.getConstructor();
-                    packetConsumer = (StompPacketConsumer<Object>) constructor.newInstance();
-                } catch (NoSuchMethodException | InstantiationException | IllegalAccessException |
-                         InvocationTargetException e) {
-                    log.error("Failed to find default constructor for class {}.", clazz.getName(), e);
-                    return;
-                }
-
-                for (String path : annotation.path()) {
-                    ensureSender();
-                    sendExecutor.execute(() -> session.subscribe(path, new StompFrameHandler() {
-                        @Override
-                        public Type getPayloadType(StompHeaders headers) {
-                            return annotation.packetClass();
-                        }
-
-                        @Override
-                        public void handleFrame(StompHeaders headers, Object payload) {
-                            packetConsumer.onReceive(payload);
-                        }
-                    }));
-                }
+    public record OutboundMetrics(int criticalDepth, int nonCriticalDepth, long droppedCritical, long droppedNonCritical, long coalesced, int outboxSize) {
+    }
 
-            } else {
-                log.error("Found class annotated with @StompPacketInfo that does not implement StompPacketConsumer: {}", clazz.getName());
-            }
-        });
+    public record ConsumerTiming(long count, long totalNanos, long maxNanos) {
     }
 
     private static class StompSessionHandler extends StompSessionHandlerAdapter {
@@ -218,6 +396,9 @@ public class StompHandler {
             log.debug("Connected to session: {}", session.getSessionId());
             super.afterConnected(session, connectedHeaders);
 
+            // Subscriptions are queued ahead of the login, so the login acknowledgement cannot be missed
+            subscribePacketConsumers(session);
+
             NodeLoginPacket loginPacket = new NodeLoginPacket();
 
             loginPacket.setDaemonVersion(Application.getVersion());
@@ -240,7 +421,7 @@ public class StompHandler {
             log.debug("Sending login packet: {} to /node/login", loginPacket);
 
             // Enqueue login send on dedicated sender thread
-            StompHandler.send("/app/node/login", loginPacket);
+            StompHandler.sendVolatile("/app/node/login", loginPacket);
         }
 
         @Override
@@ -249,6 +430,7 @@ public class StompHandler {
             if (e instanceof ConnectionLostException) {
                 log.error("The daemon lost connection to the backend. Please check the internet connection or the current backend status.");
                 Node.INSTANCE.setConnectionState(ConnectionState.RECONNECTING);
+                StompReconnectManager.requestReconnect();
                 return;
             }
 
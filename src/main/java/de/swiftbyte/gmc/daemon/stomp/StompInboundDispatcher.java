@@ -0,0 +1,137 @@
+package de.swiftbyte.gmc.daemon.stomp;
+
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs inbound packet consumers on virtual threads, so a slow consumer never blocks the STOMP client threads that
+ * also handle the WebSocket heartbeats.
+ * <p>
+ * Packets are assigned to lanes: packets carrying a server id share the lane of that server, all other packets share
+ * the node lane. Each lane runs its packets one after another in arrival order, while different lanes run in
+ * parallel. Lanes only exist while they have pending packets.
+ */
+@Slf4j
+class StompInboundDispatcher {
+
+    private static final String NODE_LANE = "node";
+    private static final MethodHandle NO_SERVER_ID = MethodHandles.constant(Object.class, null);
+
+    private final long slowConsumerNanos;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stomp-inbound-", 0).factory());
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, MethodHandle> serverIdAccessors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timings = new ConcurrentHashMap<>();
+
+    StompInboundDispatcher(long slowConsumerMillis) {
+        this.slowConsumerNanos = TimeUnit.MILLISECONDS.toNanos(slowConsumerMillis);
+    }
+
+    void dispatch(StompPacketRegistration registration, Object payload) {
+        String laneKey = laneKey(payload);
+        Runnable task = () -> run(registration, payload);
+
+        // The lane is created and filled atomically, so a draining lane can never miss a packet
+        lanes.compute(laneKey, (_, lane) -> {
+            if (lane == null) {
+                lane = new Lane(laneKey);
+                lane.pending.addLast(task);
+                executor.execute(lane::drain);
+            } else {
+                lane.pending.addLast(task);
+            }
+            return lane;
+        });
+    }
+
+    int getActiveLanes() {
+        return lanes.size();
+    }
+
+    /**
+     * Returns the run time statistics of every consumer that received at least one packet, keyed by consumer name.
+     */
+    Map<String, StompHandler.ConsumerTiming> getTimings() {
+        TreeMap<String, StompHandler.ConsumerTiming> snapshot = new TreeMap<>();
+        timings.forEach((name, timer) -> snapshot.put(name, new StompHandler.ConsumerTiming(timer.getCount(), timer.getTotalNanos(), timer.getMaxNanos())));
+        return snapshot;
+    }
+
+    private void run(StompPacketRegistration registration, Object payload) {
+        String consumerName = registration.consumer().getClass().getSimpleName();
+        long start = System.nanoTime();
+        try {
+            registration.consumer().onReceive(payload);
+        } catch (Exception e) {
+            log.error("Unhandled exception in packet consumer {}.", consumerName, e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            timings.computeIfAbsent(consumerName, name -> MetricsRegistry.timer("gmc_stomp_consumer_seconds", "Run time of inbound packet consumers.", "consumer", name)).record(elapsed);
+            if (elapsed >= slowConsumerNanos) {
+                log.warn("Packet consumer {} took {} ms.", consumerName, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    private String laneKey(Object payload) {
+        MethodHandle accessor = serverIdAccessors.computeIfAbsent(payload.getClass(), StompInboundDispatcher::findServerIdAccessor);
+        if (accessor == NO_SERVER_ID) {
+            return NODE_LANE;
+        }
+
+        try {
+            Object serverId = accessor.invoke(payload);
+            return serverId == null ? NODE_LANE : "server#" + serverId;
+        } catch (Throwable e) {
+            log.debug("Failed to read server id of {}.", payload.getClass().getSimpleName(), e);
+            return NODE_LANE;
+        }
+    }
+
+    private static MethodHandle findServerIdAccessor(Class<?> packetClass) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(packetClass, "getServerId", MethodType.methodType(String.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return NO_SERVER_ID;
+        }
+    }
+
+    private class Lane {
+
+        private final String key;
+        private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+
+        private Lane(String key) {
+            this.key = key;
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable[] next = new Runnable[1];
+                // Removing the lane and polling happen under the same map lock as dispatch
+                lanes.computeIfPresent(key, (_, lane) -> {
+                    next[0] = lane.pending.pollFirst();
+                    return next[0] == null ? null : lane;
+                });
+
+                if (next[0] == null) {
+                    return;
+                }
+                next[0].run();
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package de.swiftbyte.gmc.daemon.stomp;
+
+import de.swiftbyte.gmc.daemon.metrics.MetricsRegistry;
+import de.swiftbyte.gmc.daemon.metrics.Timer;
+import de.swiftbyte.gmc.daemon.metrics.events.StompQueueEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded outbound pipeline drained by a single sender thread.
+ * <p>
+ * The critical lane keeps every submission in order and is always drained first. The non-critical lane only keeps
+ * the latest submission per key, so a backlog of heartbeats or progress updates collapses to one entry each. Both
+ * lanes are bounded. When the critical lane is full, its oldest entry is handed to its spill action, which keeps the
+ * packet elsewhere, e.g. in the outbox; only entries without one are dropped. When the non-critical lane is full its
+ * oldest entry is dropped. The time every packet waits for the sender is recorded per lane. Control tasks such as
+ * subscriptions are few, unbounded and run before anything else.
+ */
+@Slf4j
+class StompOutboundQueue {
+
+    private static final String QUEUE_LATENCY_HELP = "Time outbound packets waited for the sender.";
+    private static final Timer CRITICAL_LATENCY = MetricsRegistry.timer("gmc_stomp_queue_seconds", QUEUE_LATENCY_HELP, "lane", "critical");
+    private static final Timer NON_CRITICAL_LATENCY = MetricsRegistry.timer("gmc_stomp_queue_seconds", QUEUE_LATENCY_HELP, "lane", "non-critical");
+
+    private final int criticalCapacity;
+    private final int nonCriticalCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final ArrayDeque<Runnable> control = new ArrayDeque<>();
+    private final ArrayDeque<CriticalTask> critical = new ArrayDeque<>();
+    private final LinkedHashMap<String, Runnable> nonCritical = new LinkedHashMap<>();
+
+    private final AtomicLong droppedCritical = new AtomicLong();
+    private final AtomicLong spilledCritical = new AtomicLong();
+    private final AtomicLong droppedNonCritical = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    StompOutboundQueue(int criticalCapacity, int nonCriticalCapacity) {
+        this.criticalCapacity = criticalCapacity;
+        this.nonCriticalCapacity = nonCriticalCapacity;
+    }
+
+    void submitControl(Runnable task) {
+        lock.lock();
+        try {
+            control.addLast(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void submitCritical(Runnable task) {
+        submitCritical(task, null);
+    }
+
+    /**
+     * @param spill runs instead of the task if it is pushed out of the full lane, or null to drop it in that case
+     */
+    void submitCritical(Runnable task, Runnable spill) {
+        lock.lock();
+        try {
+            if (critical.size() >= criticalCapacity) {
+                // Runs under the lock, so spilled packets keep their order
+                CriticalTask oldest = critical.pollFirst();
+                if (oldest.spill() != null) {
+                    spilledCritical.incrementAndGet();
+                    log.debug("Outbound critical queue is full ({} entries). Spilled the oldest packet.", criticalCapacity);
+                    oldest.spill().run();
+                } else {
+                    long dropped = droppedCritical.incrementAndGet();
+                    log.warn("Outbound critical queue is full ({} entries). Dropped the oldest packet, {} dropped in total.", criticalCapacity, dropped);
+                }
+            }
+            critical.addLast(new CriticalTask(timed(task, CRITICAL_LATENCY, "critical"), spill));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void submitNonCritical(String key, Runnable task) {
+        lock.lock();
+        try {
+            // Re-inserting moves the key to the end, so a frequently updated key cannot starve the others
+            if (nonCritical.remove(key) != null) {
+                coalesced.incrementAndGet();
+            } else if (nonCritical.size() >= nonCriticalCapacity) {
+                Iterator<Map.Entry<String, Runnable>> iterator = nonCritical.entrySet().iterator();
+                iterator.next();
+                iterator.remove();
+                droppedNonCritical.incrementAndGet();
+                log.debug("Outbound non-critical queue is full. Dropped the oldest packet.");
+            }
+            nonCritical.put(key, timed(task, NON_CRITICAL_LATENCY, "non-critical"));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a pending non-critical packet, e.g. a progress update that is superseded by a completion.
+     */
+    void discardNonCritical(String key) {
+        lock.lock();
+        try {
+            nonCritical.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a packet is available, preferring control tasks and then the critical lane.
+     */
+    Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (control.isEmpty() && critical.isEmpty() && nonCritical.isEmpty()) {
+                notEmpty.await();
+            }
+
+            if (!control.isEmpty()) {
+                return control.pollFirst();
+            }
+
+            if (!critical.isEmpty()) {
+                return critical.pollFirst().task();
+            }
+
+            Iterator<Runnable> iterator = nonCritical.values().iterator();
+            Runnable task = iterator.next();
+            iterator.remove();
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Runnable timed(Runnable task, Timer latency, String lane) {
+        StompQueueEvent event = new StompQueueEvent();
+        event.lane = lane;
+        event.begin();
+        long queuedAt = System.nanoTime();
+        return () -> {
+            latency.record(System.nanoTime() - queuedAt);
+            event.commit();
+            task.run();
+        };
+    }
+
+    int getCriticalDepth() {
+        lock.lock();
+        try {
+            return critical.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getNonCriticalDepth() {
+        lock.lock();
+        try {
+            return nonCritical.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDroppedCritical() {
+        return droppedCritical.get();
+    }
+
+    long getSpilledCritical() {
+        return spilledCritical.get();
+    }
+
+    long getDroppedNonCritical() {
+        return droppedNonCritical.get();
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private record CriticalTask(Runnable task, Runnable spill) {
+    }
+}
@@ -0,0 +1,199 @@
+package de.swiftbyte.gmc.daemon.stomp;
+
+import de.swiftbyte.gmc.daemon.cache.OutboxEntry;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Holds critical packets that could not be delivered because the daemon was disconnected, until they can be
+ * replayed in order after the next login.
+ * <p>
+ * Packets with a key supersede pending packets with the same destination and key, so only the latest state of each
+ * server is replayed. Optionally every stored packet is also appended to a segment log in {@code ./outbox}, so
+ * pending packets survive a restart of the daemon. The log is deleted once everything was replayed; a crash during
+ * the replay can therefore deliver some packets twice, but never loses one.
+ */
+@Slf4j
+class StompOutbox {
+
+    private static final Path SEGMENT_DIRECTORY = Path.of("./outbox");
+
+    private final boolean persistent;
+    private final int capacity;
+    private final int segmentSize;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private long sequence;
+
+    private FileOutputStream segment;
+    private int segmentIndex;
+    private int segmentEntries;
+
+    StompOutbox(boolean persistent, int capacity, int segmentSize) {
+        this.persistent = persistent;
+        this.capacity = capacity;
+        this.segmentSize = segmentSize;
+    }
+
+    synchronized void load() {
+        if (!persistent || !Files.isDirectory(SEGMENT_DIRECTORY)) {
+            return;
+        }
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(SEGMENT_DIRECTORY)) {
+            segments = files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        } catch (IOException e) {
+            log.error("An unknown error occurred while loading the outbox.", e);
+            return;
+        }
+
+        for (Path segmentFile : segments) {
+            segmentIndex = Math.max(segmentIndex, parseSegmentIndex(segmentFile));
+            try (BufferedReader reader = Files.newBufferedReader(segmentFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        restore(line);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("An unknown error occurred while reading outbox segment '{}'.", segmentFile, e);
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            log.info("Loaded {} packets from the outbox that were not delivered before the last shutdown.", entries.size());
+        }
+    }
+
+    synchronized void store(String destination, String key, Object payload) {
+        put(destination, key, payload);
+
+        if (persistent) {
+            append(destination, key, payload);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized Entry peek() {
+        return entries.isEmpty() ? null : entries.values().iterator().next();
+    }
+
+    synchronized void remove(Entry entry) {
+        entries.remove(entry.entryKey(), entry);
+
+        if (entries.isEmpty() && persistent) {
+            deleteSegments();
+        }
+    }
+
+    private void put(String destination, String key, Object payload) {
+        // Removing a superseded entry first moves its replacement to the end of the replay order
+        String entryKey = key != null ? destination + "#" + key : "#" + sequence++;
+        if (entries.remove(entryKey) == null && entries.size() >= capacity) {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            Entry dropped = iterator.next().getValue();
+            iterator.remove();
+            log.warn("Outbox is full ({} packets). Dropped the oldest packet to {}.", capacity, dropped.destination());
+        }
+        entries.put(entryKey, new Entry(entryKey, destination, key, payload));
+    }
+
+    private void restore(String line) {
+        try {
+            OutboxEntry entry = MapperUtils.readerFor(OutboxEntry.class).readValue(line);
+            Object payload = MapperUtils.getMapper().treeToValue(entry.getPayload(), Class.forName(entry.getPayloadType()));
+            put(entry.getDestination(), entry.getKey(), payload);
+        } catch (IOException | ClassNotFoundException e) {
+            // An entry cut off by a crash while it was written, the entries before it are intact
+            log.warn("Skipping unreadable outbox entry.", e);
+        }
+    }
+
+    private void append(String destination, String key, Object payload) {
+        try {
+            if (segment == null || segmentEntries >= segmentSize) {
+                openNextSegment();
+            }
+
+            OutboxEntry entry = OutboxEntry.builder()
+                    .destination(destination)
+                    .key(key)
+                    .payloadType(payload.getClass().getName())
+                    .payload(MapperUtils.getMapper().valueToTree(payload))
+                    .build();
+            segment.write(MapperUtils.writerFor(OutboxEntry.class).writeValueAsBytes(entry));
+            segment.write('\n');
+            segment.getChannel().force(false);
+            segmentEntries++;
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("An unknown error occurred while writing packet to {} to the outbox.", destination, e);
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(SEGMENT_DIRECTORY);
+        segment = new FileOutputStream(SEGMENT_DIRECTORY.resolve("%08d.log".formatted(++segmentIndex)).toFile(), true);
+        segmentEntries = 0;
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.debug("Failed to close outbox segment.", e);
+        }
+        segment = null;
+    }
+
+    private void deleteSegments() {
+        closeSegment();
+        segmentIndex = 0;
+
+        if (!Files.isDirectory(SEGMENT_DIRECTORY)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(SEGMENT_DIRECTORY)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete outbox segments.", e);
+        }
+    }
+
+    private static int parseSegmentIndex(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(0, name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    record Entry(String entryKey, String destination, String key, Object payload) {
+    }
+}
@@ -0,0 +1,14 @@
+package de.swiftbyte.gmc.daemon.stomp;
+
+import java.util.List;
+
+/**
+ * A consumer annotated with {@link StompPacketInfo}, as collected at compile time into {@code StompPacketRegistry}.
+ */
+public record StompPacketRegistration(List<String> paths, Class<?> packetClass, StompPacketConsumer<Object> consumer) {
+
+    @SuppressWarnings("unchecked")
+    public static StompPacketRegistration of(List<String> paths, Class<?> packetClass, StompPacketConsumer<?> consumer) {
+        return new StompPacketRegistration(paths, packetClass, (StompPacketConsumer<Object>) consumer);
+    }
+}
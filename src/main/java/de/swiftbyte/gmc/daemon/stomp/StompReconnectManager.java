@@ -0,0 +1,83 @@
+package de.swiftbyte.gmc.daemon.stomp;
+
+import de.swiftbyte.gmc.daemon.Application;
+import de.swiftbyte.gmc.daemon.Node;
+import de.swiftbyte.gmc.daemon.utils.ConfigUtils;
+import de.swiftbyte.gmc.daemon.utils.ConnectionState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules reconnect attempts with jittered exponential backoff, so a backend outage or a flapping link does not
+ * make the daemon hammer the backend every heartbeat.
+ * <p>
+ * Only one attempt is pending at any time; further requests while one is pending are ignored. The backoff is reset
+ * once a login was acknowledged and the connection then stayed up for a while.
+ */
+@Slf4j
+public class StompReconnectManager {
+
+    private static ScheduledFuture<?> pendingAttempt;
+    private static int attempts;
+    private static long connectedAt;
+
+    /**
+     * Schedules the next reconnect attempt unless one is already pending.
+     */
+    public static synchronized void requestReconnect() {
+        if (pendingAttempt != null && !pendingAttempt.isDone()) {
+            return;
+        }
+
+        // A connection that dropped again shortly after the login counts as a failed attempt
+        if (connectedAt != 0 && System.currentTimeMillis() - connectedAt >= ConfigUtils.getInt("stomp-reconnect-stable-millis", 60_000)) {
+            attempts = 0;
+        }
+        connectedAt = 0;
+
+        long delay = nextDelayMillis(attempts++);
+        log.info("Reconnecting to backend in {} seconds (attempt {})...", Math.round(delay / 1000.0), attempts);
+        pendingAttempt = Application.getExecutor().schedule(StompReconnectManager::attempt, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Must be called once the backend acknowledged the login.
+     */
+    public static synchronized void onLoginAcknowledged() {
+        connectedAt = System.currentTimeMillis();
+        if (pendingAttempt != null) {
+            pendingAttempt.cancel(false);
+            pendingAttempt = null;
+        }
+    }
+
+    private static void attempt() {
+        if (Node.INSTANCE.getConnectionState() != ConnectionState.RECONNECTING) {
+            return;
+        }
+
+        // A session that is still open but considered broken would never send a new login
+        StompHandler.disconnect();
+        if (StompHandler.initialiseStomp()) {
+            // The backoff is only reset by the login acknowledgement
+            return;
+        }
+
+        synchronized (StompReconnectManager.class) {
+            pendingAttempt = null;
+            requestReconnect();
+        }
+    }
+
+    private static long nextDelayMillis(int attempt) {
+        long initialDelay = ConfigUtils.getInt("stomp-reconnect-initial-delay-millis", 1000);
+        long maxDelay = ConfigUtils.getInt("stomp-reconnect-max-delay-millis", 60_000);
+
+        long delay = Math.min(maxDelay, initialDelay << Math.min(attempt, 20));
+        // Jitter between half and the full delay keeps reconnecting nodes from hitting the backend at the same time
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
@@ -9,14 +9,19 @@ import de.swiftbyte.gmc.daemon.server.AsaServer;
 import de.swiftbyte.gmc.daemon.server.AseServer;
 import de.swiftbyte.gmc.daemon.server.GameServer;
 import de.swiftbyte.gmc.daemon.service.TaskService;
+import de.swiftbyte.gmc.daemon.stomp.StompHandler;
 import de.swiftbyte.gmc.daemon.stomp.StompPacketConsumer;
 import de.swiftbyte.gmc.daemon.stomp.StompPacketInfo;
+import de.swiftbyte.gmc.daemon.stomp.StompReconnectManager;
 import de.swiftbyte.gmc.daemon.utils.ConnectionState;
 import de.swiftbyte.gmc.daemon.utils.ServerUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @StompPacketInfo(path = "/user/queue/node/login", packetClass = NodeLoginAckPacket.class)
@@ -34,49 +39,13 @@ public class LoginAckPacketConsumer implements StompPacketConsumer<NodeLoginAckP
 
             log.info("Loading '{}' game servers...", packet.getGameServers().size());
 
-            // First, reconcile display name changes for already known servers to keep symlinks tidy
-            try {
-                packet.getGameServers().forEach(gameServer -> {
-                    GameServer existing = GameServer.getServerById(gameServer.getId());
-                    if (existing != null) {
-                        String newName = gameServer.getDisplayName();
-                        if (newName != null && !newName.equals(existing.getFriendlyName())) {
-                            log.info("Detected name change on login: '{}' -> '{}' (id={}).", existing.getFriendlyName(), newName, gameServer.getId());
-                            existing.changeFriendlyName(newName);
-                        }
-                    }
-                });
-            } catch (Exception e) {
-                log.warn("Failed while applying server name changes during login ack.", e);
-            }
-
-            // Recreate in-memory instances to reflect backend state
-            GameServer.abandonAll();
-            packet.getGameServers().forEach(gameServer -> {
-                try {
-                    log.debug("Loading game server '{}' as type {}...", gameServer.getDisplayName(), gameServer.getType());
-
-                    if (gameServer.getServerDirectory() == null) {
-                        throw new RuntimeException("Server installation directory could not be found.");
-                    }
-
-                    Path serverInstallDir = Path.of(gameServer.getServerDirectory(), gameServer.getId());
-
-                    SettingProfile settings = ServerUtils.getSettingProfile(gameServer.getSettingProfileId());
-                    if (settings == null) {
-                        log.error("Setting profile '{}' not found for game server '{}'. Canceling server initialization.", gameServer.getSettingProfileId(), gameServer.getDisplayName());
-                        return;
-                    }
-
-                    createGameServer(gameServer, settings, serverInstallDir);
-                } catch (Exception e) {
-                    log.error("An unhandled exception occurred while initializing game server '{}'.", gameServer.getDisplayName(), e);
-                }
-            });
+            // Keep running instances and only apply what changed, so a reconnect does not disturb running servers
+            reconcileGameServers(packet.getGameServers());
 
             Node.INSTANCE.updateSettings(packet.getNodeSettings());
 
             Node.INSTANCE.setConnectionState(ConnectionState.CONNECTED);
+            StompReconnectManager.onLoginAcknowledged();
 
             // If we reconnected while tasks were running, re-announce them to the backend
             try {
@@ -85,6 +54,9 @@ public class LoginAckPacketConsumer implements StompPacketConsumer<NodeLoginAckP
                 log.warn("Failed to re-announce active tasks after login ack.", e);
             }
 
+            // Deliver what happened while disconnected, including the state changes of this login
+            StompHandler.replayOutbox();
+
             if (Node.INSTANCE.isFirstStart()) {
                 log.info("""
                         
@@ -102,13 +74,82 @@ public class LoginAckPacketConsumer implements StompPacketConsumer<NodeLoginAckP
         }
     }
 
-    private void createGameServer(GameServerDto gameServer, SettingProfile settings, @NotNull Path serverInstallDir) {
+    private void reconcileGameServers(List<GameServerDto> gameServers) {
+        Set<String> assignedServerIds = new HashSet<>();
+
+        gameServers.forEach(gameServer -> {
+            assignedServerIds.add(gameServer.getId());
+            try {
+                reconcileGameServer(gameServer);
+            } catch (Exception e) {
+                log.error("An unhandled exception occurred while initializing game server '{}'.", gameServer.getDisplayName(), e);
+            }
+        });
+
+        for (GameServer server : GameServer.getAllServers()) {
+            if (!assignedServerIds.contains(server.getServerId())) {
+                log.info("Game server '{}' is no longer assigned to this node. Abandoning it.", server.getFriendlyName());
+                server.abandon().complete();
+            }
+        }
+    }
+
+    private void reconcileGameServer(GameServerDto gameServer) {
+        log.debug("Loading game server '{}' as type {}...", gameServer.getDisplayName(), gameServer.getType());
+
+        if (gameServer.getServerDirectory() == null) {
+            throw new RuntimeException("Server installation directory could not be found.");
+        }
 
         if (gameServer.getType() == null) {
             log.error("Game server type is null for game server '{}'. Using ARK_ASCENDED to continue!", gameServer.getDisplayName());
             gameServer.setType(GameType.ARK_ASCENDED);
         }
 
+        Path serverInstallDir = Path.of(gameServer.getServerDirectory(), gameServer.getId());
+
+        SettingProfile settings = ServerUtils.getSettingProfile(gameServer.getSettingProfileId());
+        if (settings == null) {
+            log.error("Setting profile '{}' not found for game server '{}'. Canceling server initialization.", gameServer.getSettingProfileId(), gameServer.getDisplayName());
+            return;
+        }
+
+        GameServer existing = GameServer.getServerById(gameServer.getId());
+        if (existing != null && isOfType(existing, gameServer.getType())) {
+            String newName = gameServer.getDisplayName();
+            if (newName != null && !newName.equals(existing.getFriendlyName())) {
+                log.info("Detected name change on login: '{}' -> '{}' (id={}).", existing.getFriendlyName(), newName, gameServer.getId());
+                existing.changeFriendlyName(newName);
+            }
+
+            if (!serverInstallDir.toAbsolutePath().normalize().equals(existing.getInstallDir())) {
+                log.info("Detected directory change on login for '{}': '{}' -> '{}'.", existing.getFriendlyName(), existing.getInstallDir(), serverInstallDir);
+                existing.setInstallDir(serverInstallDir);
+            }
+
+            if (!settings.equals(existing.getSettings())) {
+                log.debug("Applying changed settings of game server '{}'.", existing.getFriendlyName());
+                existing.setSettings(settings);
+            }
+            return;
+        }
+
+        if (existing != null) {
+            log.info("Game type of '{}' changed to {}. Recreating it.", existing.getFriendlyName(), gameServer.getType());
+            existing.abandon().complete();
+        }
+        createGameServer(gameServer, settings, serverInstallDir);
+    }
+
+    private static boolean isOfType(GameServer server, GameType type) {
+        return switch (type) {
+            case ARK_ASCENDED -> server instanceof AsaServer;
+            case ARK_EVOLVED -> server instanceof AseServer;
+            default -> false;
+        };
+    }
+
+    private void createGameServer(GameServerDto gameServer, SettingProfile settings, @NotNull Path serverInstallDir) {
         switch (gameServer.getType()) {
             case ARK_ASCENDED ->
                     new AsaServer(gameServer.getId(), gameServer.getDisplayName(), serverInstallDir, settings, false);
@@ -23,10 +23,11 @@ public class DeleteBackupServerPacketConsumer implements StompPacketConsumer<Ser
             return;
         }
 
-        if (BackupService.deleteBackup(packet.getBackupId())) {
+        // Incremental backups based on the deleted one are gone as well, the backend has to forget them too
+        for (String deletedBackupId : BackupService.deleteBackup(packet.getBackupId())) {
             ServerDeleteBackupResponsePacket responsePacket = new ServerDeleteBackupResponsePacket();
             responsePacket.setServerId(packet.getServerId());
-            responsePacket.setBackupId(packet.getBackupId());
+            responsePacket.setBackupId(deletedBackupId);
             StompHandler.send("/app/server/delete-backup", responsePacket);
         }
     }
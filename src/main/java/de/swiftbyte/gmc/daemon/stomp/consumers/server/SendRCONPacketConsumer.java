@@ -19,12 +19,19 @@ public class SendRCONPacketConsumer implements StompPacketConsumer<ServerRconPac
         GameServer server = GameServer.getServerById(packet.getServerId());
 
         if (server != null) {
-            String response = server.sendRconCommand(packet.getCommand().getCommand());
-            packet.getCommand().setResponse(response);
-            packet.getCommand().setTimestamp(Instant.now());
+            // Answer from the RCON reader once the game server responded instead of blocking the STOMP thread
+            server.sendRconCommandAsync(packet.getCommand().getCommand())
+                    .exceptionally(e -> {
+                        log.debug("RCON command for server with id {} failed.", packet.getServerId(), e);
+                        return null;
+                    })
+                    .thenAccept(response -> {
+                        packet.getCommand().setResponse(response);
+                        packet.getCommand().setTimestamp(Instant.now());
 
-            log.debug("Sending RCON command was successful: {}.", packet);
-            StompHandler.send("/app/server/rcon", packet);
+                        log.debug("Sending RCON command was successful: {}.", packet);
+                        StompHandler.send("/app/server/rcon", packet);
+                    });
 
         } else {
             log.error("Server with id {} not found!", packet.getServerId());
@@ -0,0 +1,151 @@
+package de.swiftbyte.gmc.daemon.stomp.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates {@code StompPacketRegistry}, a static list of all classes annotated with {@code @StompPacketInfo}, so
+ * the daemon neither scans the classpath nor instantiates consumers reflectively when it connects.
+ * <p>
+ * Consumers that do not implement {@code StompPacketConsumer} or lack a public no-args constructor fail the build.
+ */
+@SupportedAnnotationTypes(StompPacketRegistryProcessor.ANNOTATION)
+public class StompPacketRegistryProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "de.swiftbyte.gmc.daemon.stomp.StompPacketInfo";
+    private static final String CONSUMER_INTERFACE = "de.swiftbyte.gmc.daemon.stomp.StompPacketConsumer";
+    private static final String REGISTRY_PACKAGE = "de.swiftbyte.gmc.daemon.stomp";
+    private static final String REGISTRY_NAME = "StompPacketRegistry";
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (generated || annotations.isEmpty()) {
+            return false;
+        }
+
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        TypeMirror consumerType = processingEnv.getTypeUtils().erasure(processingEnv.getElementUtils().getTypeElement(CONSUMER_INTERFACE).asType());
+
+        List<Registration> registrations = new ArrayList<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            if (!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()), consumerType)) {
+                error(type, "Class annotated with @StompPacketInfo must implement StompPacketConsumer.");
+                continue;
+            }
+            if (type.getModifiers().contains(Modifier.ABSTRACT) || !hasPublicNoArgsConstructor(type)) {
+                error(type, "Class annotated with @StompPacketInfo must be concrete and have a public no-args constructor.");
+                continue;
+            }
+
+            registrations.add(readRegistration(type));
+        }
+
+        registrations.sort(Comparator.comparing(Registration::consumerClass));
+        writeRegistry(registrations);
+        generated = true;
+        return true;
+    }
+
+    private Registration readRegistration(TypeElement type) {
+        List<String> paths = new ArrayList<>();
+        String packetClass = null;
+
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION)) {
+                continue;
+            }
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                String name = entry.getKey().getSimpleName().toString();
+                Object value = entry.getValue().getValue();
+                if (name.equals("path")) {
+                    if (value instanceof List<?> values) {
+                        values.forEach(path -> paths.add((String) ((AnnotationValue) path).getValue()));
+                    } else {
+                        paths.add((String) value);
+                    }
+                } else if (name.equals("packetClass")) {
+                    packetClass = processingEnv.getTypeUtils().erasure((TypeMirror) value).toString();
+                }
+            }
+        }
+
+        return new Registration(type.getQualifiedName().toString(), packetClass, paths);
+    }
+
+    private void writeRegistry(List<Registration> registrations) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(REGISTRY_PACKAGE).append(";\n\n")
+                .append("import java.util.List;\n\n")
+                .append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("final class ").append(REGISTRY_NAME).append(" {\n\n")
+                .append("    private ").append(REGISTRY_NAME).append("() {\n    }\n\n")
+                .append("    static List<StompPacketRegistration> getRegistrations() {\n")
+                .append("        return List.of(");
+
+        for (int i = 0; i < registrations.size(); i++) {
+            Registration registration = registrations.get(i);
+            source.append(i == 0 ? "\n" : ",\n")
+                    .append("                StompPacketRegistration.of(List.of(");
+            for (int p = 0; p < registration.paths().size(); p++) {
+                source.append(p == 0 ? "" : ", ").append('"').append(escape(registration.paths().get(p))).append('"');
+            }
+            source.append("), ").append(registration.packetClass()).append(".class, new ")
+                    .append(registration.consumerClass()).append("())");
+        }
+        source.append("\n        );\n    }\n}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(REGISTRY_PACKAGE + "." + REGISTRY_NAME).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + REGISTRY_NAME + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean hasPublicNoArgsConstructor(TypeElement type) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        return constructors.stream().anyMatch(constructor -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private record Registration(String consumerClass, String packetClass, List<String> paths) {
+    }
+}
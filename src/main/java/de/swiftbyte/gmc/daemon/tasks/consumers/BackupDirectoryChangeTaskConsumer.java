@@ -7,7 +7,6 @@ import de.swiftbyte.gmc.daemon.Node;
 import de.swiftbyte.gmc.daemon.service.BackupService;
 import de.swiftbyte.gmc.daemon.stomp.StompHandler;
 import de.swiftbyte.gmc.daemon.tasks.NodeTaskConsumer;
-import de.swiftbyte.gmc.daemon.utils.NodeUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Path;
@@ -25,9 +24,8 @@ public class BackupDirectoryChangeTaskConsumer implements NodeTaskConsumer {
             log.info("Starting BACKUP_DIRECTORY_CHANGE task: {} -> {}", oldBackupPath, newBackupPath);
             BackupService.suspendBackups();
             BackupService.moveBackupsDirectory(oldBackupPath, newBackupPath);
-            // Apply new backup path after successful move and persist
+            // Apply new backup path after successful move, the setter persists it
             Node.INSTANCE.setBackupPath(newBackupPath);
-            NodeUtils.cacheInformation(Node.INSTANCE);
             log.info("BACKUP_DIRECTORY_CHANGE task finished successfully.");
         } catch (Exception e) {
             try {
@@ -3,12 +3,10 @@ package de.swiftbyte.gmc.daemon.tasks.consumers;
 import de.swiftbyte.gmc.common.entity.GameServerState;
 import de.swiftbyte.gmc.common.model.NodeTask;
 import de.swiftbyte.gmc.common.packet.from.daemon.server.ServerChangeDirectoryFailedPacket;
-import de.swiftbyte.gmc.daemon.Node;
 import de.swiftbyte.gmc.daemon.server.GameServer;
 import de.swiftbyte.gmc.daemon.service.TaskService;
 import de.swiftbyte.gmc.daemon.stomp.StompHandler;
 import de.swiftbyte.gmc.daemon.tasks.NodeTaskConsumer;
-import de.swiftbyte.gmc.daemon.utils.NodeUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 
@@ -68,8 +66,6 @@ public class ServerDirectoryChangeTaskConsumer implements NodeTaskConsumer {
             // Refresh display-name symlink
             refreshDisplayNameSymlink(server, currentInstallDirInitial.getParent(), p.newParentDir(), newAbs);
 
-            NodeUtils.cacheInformation(Node.INSTANCE);
-
             log.info("SERVER_DIRECTORY_CHANGE task finished successfully for '{}'. New path: {}", server.getFriendlyName(), newAbs);
         } catch (Exception e) {
             try {
@@ -0,0 +1,100 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Slf4j
+public class BackupArchiveUtils {
+
+    /**
+     * Lists the save files that belong into a backup, with size and modification time taken at the same moment.
+     * Temporary files are skipped, as are map saves of other maps (ARK keeps rotated {@code .ark} copies next to the
+     * current one). Files that disappear while the directory is walked are skipped as well.
+     */
+    public static List<SaveFile> collectSaveFiles(Path saveLocation, String map) throws IOException {
+        List<SaveFile> saveFiles = new ArrayList<>();
+
+        Files.walkFileTree(saveLocation, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile() || isExcluded(saveLocation, path, map)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                String entryName = saveLocation.relativize(path).toString().replace('\\', '/');
+                saveFiles.add(new SaveFile(path, entryName, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+                // The game replaces its saves through temporary files, which can be gone or locked by the time they are visited
+                if (isExcluded(saveLocation, path, map)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (e instanceof NoSuchFileException) {
+                    log.debug("Save file '{}' disappeared while it was listed.", path);
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                if (e != null && !(e instanceof NoSuchFileException)) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        saveFiles.sort(Comparator.comparing(SaveFile::entryName));
+        return saveFiles;
+    }
+
+    private static boolean isExcluded(Path saveLocation, Path path, String map) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(".tmp")) {
+            return true;
+        }
+        return saveLocation.equals(path.getParent()) && fileName.endsWith(".ark") && !fileName.equalsIgnoreCase(map + ".ark");
+    }
+
+    /**
+     * Compresses the given save files straight into a zip archive. The archive is written next to the target and
+     * moved into place once complete, so an interrupted backup never leaves a truncated zip behind.
+     */
+    public static void writeZip(List<SaveFile> saveFiles, Path target, ParallelZipWriter.CompressionLevel level) throws IOException {
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+
+        try {
+            try (ParallelZipWriter zip = new ParallelZipWriter(partFile, level)) {
+                for (SaveFile saveFile : saveFiles) {
+                    // Only the listed size is read, so content appended after the snapshot does not end up in the backup
+                    long written = zip.addFile(saveFile.path(), saveFile.entryName(), saveFile.size(), saveFile.lastModified());
+                    if (written != saveFile.size() || Files.getLastModifiedTime(saveFile.path()).toMillis() != saveFile.lastModified()) {
+                        log.warn("Save file '{}' changed while it was backed up.", saveFile.entryName());
+                    }
+                }
+            }
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+    }
+
+    public record SaveFile(Path path, String entryName, long size, long lastModified) {
+    }
+}
@@ -1,9 +1,7 @@
 package de.swiftbyte.gmc.daemon.utils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.swiftbyte.gmc.common.entity.NodeData;
+import de.swiftbyte.gmc.daemon.service.ProcessIndexService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.SystemUtils;
 import oshi.SystemInfo;
@@ -18,7 +16,6 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
 
 @Slf4j
 public class CommonUtils {
@@ -48,11 +45,7 @@ public class CommonUtils {
     }
 
     public static String getProcessPID(String command) {
-        Optional<ProcessHandle> processHandle = ProcessHandle.allProcesses()
-                .filter(ph -> ph.info().command().isPresent()).filter(ph -> ph.info().command().get().contains(command))
-                .findFirst();
-
-        return processHandle.map(handle -> String.valueOf(handle.pid())).orElse(null);
+        return ProcessIndexService.getProcessPID(command);
     }
 
     public static List<String> getSystemIpAddresses() {
@@ -98,10 +91,4 @@ public class CommonUtils {
         cpu.setFrequency(systemInfo.getHardware().getProcessor().getMaxFreq());
         return cpu;
     }
-
-    public static ObjectReader getObjectReader() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModules(new JavaTimeModule());
-        return mapper.reader();
-    }
 }
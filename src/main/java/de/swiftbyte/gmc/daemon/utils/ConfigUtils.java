@@ -51,6 +51,13 @@ public class ConfigUtils {
         }
     }
 
+    /**
+     * @return whether {@link #initialiseConfigSystem()} ran, before that every getter returns its default value
+     */
+    public static boolean isInitialised() {
+        return properties != null;
+    }
+
     public static boolean store(String key, String value) {
 
         if (key == null || value == null) {
@@ -82,6 +89,11 @@ public class ConfigUtils {
             return null;
         }
 
+        if (properties == null) {
+            // Config system is not initialised, e.g. when daemon classes are used by the benchmarks
+            return defaultValue;
+        }
+
         return properties.getProperty(key, defaultValue);
     }
 
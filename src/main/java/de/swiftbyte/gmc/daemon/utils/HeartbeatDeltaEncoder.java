@@ -0,0 +1,93 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import de.swiftbyte.gmc.common.entity.GameServerState;
+import de.swiftbyte.gmc.common.entity.ResourceUsage;
+import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeHeartbeatPacket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reduces the game servers of a heartbeat to the ones that changed since the last delivered heartbeat.
+ * <p>
+ * Resource usage is compared in steps, so small fluctuations do not count as a change. Every
+ * {@code keyframeInterval} heartbeats, and after every {@link #reset()}, a keyframe with all servers is produced
+ * instead. The baseline only moves when {@link #acknowledge(Frame)} is called for a delivered frame; a frame that was
+ * superseded before it was sent therefore never hides its changes from the next one.
+ */
+public class HeartbeatDeltaEncoder {
+
+    private final int keyframeInterval;
+    private final double cpuStep;
+    private final long memoryStepMegabytes;
+
+    private final HashMap<String, Snapshot> acknowledged = new HashMap<>();
+    private int heartbeatsSinceKeyframe;
+    private long epoch;
+
+    public HeartbeatDeltaEncoder(int keyframeInterval, double cpuStep, long memoryStepMegabytes) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.cpuStep = Math.max(cpuStep, 0.1);
+        this.memoryStepMegabytes = Math.max(memoryStepMegabytes, 1);
+        this.heartbeatsSinceKeyframe = this.keyframeInterval;
+    }
+
+    public synchronized Frame encode(List<NodeHeartbeatPacket.GameServerUpdate> updates) {
+        boolean keyframe = heartbeatsSinceKeyframe >= keyframeInterval;
+        heartbeatsSinceKeyframe = keyframe ? 1 : heartbeatsSinceKeyframe + 1;
+
+        ArrayList<NodeHeartbeatPacket.GameServerUpdate> changed = new ArrayList<>();
+        HashMap<String, Snapshot> snapshots = HashMap.newHashMap(updates.size());
+        for (NodeHeartbeatPacket.GameServerUpdate update : updates) {
+            Snapshot snapshot = snapshot(update);
+            if (keyframe || !snapshot.equals(acknowledged.get(update.getId()))) {
+                changed.add(update);
+                snapshots.put(update.getId(), snapshot);
+            }
+        }
+        return new Frame(keyframe, epoch, changed, snapshots);
+    }
+
+    /**
+     * Moves the baseline to the given frame once it was delivered.
+     */
+    public synchronized void acknowledge(Frame frame) {
+        // Frames encoded before the last reset describe a baseline the backend may not have anymore
+        if (frame.epoch() != epoch) {
+            return;
+        }
+        if (frame.keyframe()) {
+            acknowledged.clear();
+        }
+        acknowledged.putAll(frame.snapshots());
+    }
+
+    /**
+     * Forgets the baseline, e.g. after the connection was lost. The next frame is a keyframe.
+     */
+    public synchronized void reset() {
+        acknowledged.clear();
+        heartbeatsSinceKeyframe = keyframeInterval;
+        epoch++;
+    }
+
+    private Snapshot snapshot(NodeHeartbeatPacket.GameServerUpdate update) {
+        ResourceUsage usage = Objects.requireNonNullElseGet(update.getResourceUsage(), ResourceUsage::new);
+        return new Snapshot(
+                update.getState(),
+                update.getPlayerCount(),
+                (long) Math.floor(usage.getCpuPercentage() / cpuStep),
+                Math.floorDiv(usage.getRamBytes(), memoryStepMegabytes),
+                Math.floorDiv(usage.getDiskBytes(), memoryStepMegabytes)
+        );
+    }
+
+    public record Frame(boolean keyframe, long epoch, List<NodeHeartbeatPacket.GameServerUpdate> updates, Map<String, Snapshot> snapshots) {
+    }
+
+    public record Snapshot(GameServerState state, int playerCount, long cpuStep, long ramStep, long diskStep) {
+    }
+}
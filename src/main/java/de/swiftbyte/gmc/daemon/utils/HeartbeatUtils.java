@@ -0,0 +1,57 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import de.swiftbyte.gmc.common.entity.GameServerState;
+import de.swiftbyte.gmc.common.entity.ResourceUsage;
+import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeHeartbeatPacket;
+import de.swiftbyte.gmc.daemon.metrics.Metric;
+import de.swiftbyte.gmc.daemon.metrics.MetricsHistory;
+import de.swiftbyte.gmc.daemon.metrics.TimeSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HeartbeatUtils {
+
+    /**
+     * Builds a heartbeat that summarises the metrics history since the given time, so spikes between two heartbeats
+     * or during an outage still reach the backend.
+     */
+    public static NodeHeartbeatPacket buildHeartbeatPacket(List<ServerStatus> servers, long since) {
+        NodeHeartbeatPacket heartbeatPacket = new NodeHeartbeatPacket();
+        heartbeatPacket.setResourceUsage(summarizeUsage(MetricsHistory.NODE, since, false));
+
+        ArrayList<NodeHeartbeatPacket.GameServerUpdate> gameServerUpdates = new ArrayList<>(servers.size());
+        for (ServerStatus server : servers) {
+            NodeHeartbeatPacket.GameServerUpdate gameServerUpdate = new NodeHeartbeatPacket.GameServerUpdate();
+            gameServerUpdate.setState(server.state());
+            gameServerUpdate.setId(server.serverId());
+
+            TimeSeries.Summary players = MetricsHistory.summarize(server.serverId(), Metric.PLAYERS, since);
+            gameServerUpdate.setPlayerCount(players.count() > 0 ? (int) players.max() : server.currentOnlinePlayers());
+            gameServerUpdate.setResourceUsage(summarizeUsage(server.serverId(), since, true));
+            gameServerUpdates.add(gameServerUpdate);
+        }
+        heartbeatPacket.setGameServers(gameServerUpdates);
+        return heartbeatPacket;
+    }
+
+    /**
+     * Reports the mean CPU and the peak RAM of the window. Disk is the latest used space for the node and the summed
+     * IO for game servers.
+     */
+    private static ResourceUsage summarizeUsage(String owner, long since, boolean isGameServer) {
+        ResourceUsage usage = new ResourceUsage();
+        usage.setCpuPercentage(MetricsHistory.summarize(owner, Metric.CPU, since).mean());
+        usage.setRamBytes((long) MetricsHistory.summarize(owner, Metric.RAM, since).max());
+
+        TimeSeries.Summary disk = MetricsHistory.summarize(owner, Metric.DISK, since);
+        usage.setDiskBytes((long) (isGameServer ? disk.sum() : disk.last()));
+        return usage;
+    }
+
+    /**
+     * The live state of a game server that goes into a heartbeat next to its metrics history.
+     */
+    public record ServerStatus(String serverId, GameServerState state, int currentOnlinePlayers) {
+    }
+}
@@ -0,0 +1,88 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared Jackson configuration of the daemon.
+ * <p>
+ * Building an {@link ObjectMapper} is cheap, but every new instance starts with empty serializer and deserializer
+ * caches and has to introspect each type again. Readers and writers are immutable and thread-safe, so one instance
+ * per type is kept for the lifetime of the daemon. Setting {@code jackson-blackbird=true} additionally replaces
+ * reflective property access with generated lambdas. The setting is read once, when the first mapper is created.
+ */
+@Slf4j
+public class MapperUtils {
+
+    private static final ConcurrentHashMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a mapper with the daemon's configuration for another data format, e.g. Smile.
+     */
+    public static ObjectMapper createMapper(JsonFactory factory) {
+        return createMapper(factory, Blackbird.ENABLED);
+    }
+
+    public static ObjectMapper createMapper(JsonFactory factory, boolean blackbird) {
+        ObjectMapper mapper = new ObjectMapper(factory)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .registerModule(new JavaTimeModule());
+        if (blackbird) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        return mapper;
+    }
+
+    /**
+     * @return the shared mapper. It must not be reconfigured, derive readers and writers from it instead.
+     */
+    public static ObjectMapper getMapper() {
+        return Shared.MAPPER;
+    }
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.computeIfAbsent(type, Shared.MAPPER::readerFor);
+    }
+
+    public static ObjectWriter writerFor(Class<?> type) {
+        return WRITERS.computeIfAbsent(type, Shared.MAPPER::writerFor);
+    }
+
+    public static ObjectWriter getPrettyWriter() {
+        return Shared.PRETTY_WRITER;
+    }
+
+    // Initialised on first use instead of when MapperUtils is loaded, so the setting comes from the loaded configuration
+    private static class Blackbird {
+
+        private static final boolean ENABLED = readSetting();
+
+        private static boolean readSetting() {
+            if (!ConfigUtils.isInitialised()) {
+                log.warn("Jackson mappers were created before the configuration was loaded. jackson-blackbird is ignored until the next start.");
+                return false;
+            }
+
+            boolean enabled = Boolean.parseBoolean(ConfigUtils.get("jackson-blackbird", "false"));
+            log.debug("Jackson Blackbird is {}.", enabled ? "enabled" : "disabled");
+            return enabled;
+        }
+    }
+
+    private static class Shared {
+
+        private static final ObjectMapper MAPPER = createMapper(new JsonFactory());
+
+        private static final ObjectWriter PRETTY_WRITER = MAPPER.writer(new DefaultPrettyPrinter());
+    }
+}
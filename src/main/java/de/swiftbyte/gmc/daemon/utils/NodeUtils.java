@@ -1,16 +1,6 @@
 package de.swiftbyte.gmc.daemon.utils;
 
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import de.swiftbyte.gmc.common.entity.GameType;
 import de.swiftbyte.gmc.daemon.Application;
-import de.swiftbyte.gmc.daemon.Node;
-import de.swiftbyte.gmc.daemon.cache.CacheModel;
-import de.swiftbyte.gmc.daemon.cache.GameServerCacheModel;
-import de.swiftbyte.gmc.daemon.server.AseServer;
-import de.swiftbyte.gmc.daemon.server.GameServer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.springframework.shell.component.context.ComponentContext;
@@ -24,7 +14,6 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
 
 @Slf4j
 public class NodeUtils {
@@ -128,62 +117,4 @@ public class NodeUtils {
             throw new RuntimeException(e);
         }
     }
-
-    public static void cacheInformation(Node node) {
-
-        if (node.getConnectionState() == ConnectionState.DELETING) {
-            return;
-        }
-
-        HashMap<String, GameServerCacheModel> gameServers = new HashMap<>();
-
-        for (GameServer gameServer : GameServer.getAllServers()) {
-
-            GameType gameType = GameType.ARK_ASCENDED;
-            if (gameServer instanceof AseServer) {
-                gameType = GameType.ARK_EVOLVED;
-            }
-
-            GameServerCacheModel gameServerCacheModel = GameServerCacheModel.builder()
-                    .friendlyName(gameServer.getFriendlyName())
-                    .gameType(gameType)
-                    .settings(gameServer.getSettings())
-                    .build();
-            if (gameServer.getInstallDir() == null) {
-                log.error("Install directory is null for game server '{}'. Skipping...", gameServer.getFriendlyName());
-                continue;
-            }
-            gameServerCacheModel.setInstallDir(gameServer.getInstallDir().toString());
-            gameServers.put(gameServer.getServerId(), gameServerCacheModel);
-        }
-
-        String defaultServers = node.getDefaultServerDirectory() != null
-                ? node.getDefaultServerDirectory().normalize().toString()
-                : PathValidationUtils.canonicalizeOrAbsolute("./servers");
-
-        CacheModel cacheModel = CacheModel.builder()
-                .nodeName(node.getNodeName())
-                .teamName(node.getTeamName())
-                .serverPath(node.getServerPath())
-                .defaultServerDirectory(defaultServers)
-                .backupPath(node.getBackupPath())
-                .isAutoUpdateEnabled(node.isAutoUpdateEnabled())
-                .gameServerCacheModelHashMap(gameServers)
-                .manageFirewallAutomatically(node.isManageFirewallAutomatically())
-                .build();
-
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
-        try {
-            File file = new File("./cache.json");
-            if (!file.exists()) {
-                file.createNewFile();
-            }
-            writer.writeValue(file, cacheModel);
-        } catch (IOException e) {
-            log.error("An unknown error occurred while caching information.", e);
-        }
-
-    }
 }
@@ -0,0 +1,376 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes standard zip archives while deflating on all cores.
+ * <p>
+ * Every file is split into chunks that are compressed independently on a fork-join pool. Each chunk is primed with
+ * the last 32 KiB of its predecessor as dictionary and ends on a byte boundary (sync flush), so the chunks simply
+ * concatenate to one valid deflate stream and the ratio stays close to single-threaded compression. Only a bounded
+ * number of chunks is in flight at once, which caps the memory use independent of the save size.
+ */
+@Slf4j
+public class ParallelZipWriter implements Closeable {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    // Entries above this size get zip64 headers up front, the margin covers deflate's worst case expansion
+    private static final long ZIP64_THRESHOLD = 0xF0000000L;
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    private static ForkJoinPool compressionPool;
+
+    private final FileChannel channel;
+    private final CompressionLevel level;
+    private final List<CentralEntry> entries = new ArrayList<>();
+    private final int maxChunksInFlight;
+
+    public ParallelZipWriter(Path target, CompressionLevel level) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.level = level;
+        this.maxChunksInFlight = getCompressionPool().getParallelism() * 2;
+    }
+
+    private static synchronized ForkJoinPool getCompressionPool() {
+        if (compressionPool == null) {
+            compressionPool = new ForkJoinPool(ConfigUtils.getInt("backup-compression-threads", Runtime.getRuntime().availableProcessors()));
+        }
+        return compressionPool;
+    }
+
+    /**
+     * Adds the first {@code size} bytes of the file as a new entry.
+     *
+     * @return the number of bytes actually read, which is smaller than {@code size} if the file shrank meanwhile
+     */
+    public long addFile(Path file, String entryName, long size, long lastModified) throws IOException {
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        int method = level == CompressionLevel.STORE ? METHOD_STORED : METHOD_DEFLATED;
+        long dosTime = toDosTime(lastModified);
+        boolean zip64 = size >= ZIP64_THRESHOLD;
+
+        long headerOffset = channel.position();
+        writeLocalHeader(name, method, dosTime, zip64);
+        long dataOffset = channel.position();
+
+        CRC32 crc = new CRC32();
+        long uncompressedSize;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            uncompressedSize = method == METHOD_STORED ? copyStored(in, size, crc) : copyDeflated(in, size, crc);
+        }
+        long compressedSize = channel.position() - dataOffset;
+
+        if (!zip64 && compressedSize >= ZIP32_LIMIT) {
+            throw new IOException("Entry '" + entryName + "' exceeds the zip size limit.");
+        }
+
+        patchLocalHeader(headerOffset, name.length, crc.getValue(), compressedSize, uncompressedSize, zip64);
+        channel.position(dataOffset + compressedSize);
+
+        entries.add(new CentralEntry(name, method, dosTime, crc.getValue(), compressedSize, uncompressedSize, headerOffset, zip64));
+        return uncompressedSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeCentralDirectory();
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private long copyStored(FileChannel in, long size, CRC32 crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long position = 0;
+        while (position < size) {
+            buffer.clear().limit((int) Math.min(CHUNK_SIZE, size - position));
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer.array(), 0, read);
+            writeFully(buffer);
+            position += read;
+        }
+        return position;
+    }
+
+    private long copyDeflated(FileChannel in, long size, CRC32 crc) throws IOException {
+        int chunkCount = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+
+        long uncompressedSize = 0;
+        int nextChunk = 0;
+        try {
+            while (nextChunk < chunkCount || !inFlight.isEmpty()) {
+                while (nextChunk < chunkCount && inFlight.size() < maxChunksInFlight) {
+                    int index = nextChunk++;
+                    boolean last = index == chunkCount - 1;
+                    inFlight.add(getCompressionPool().submit(() -> deflateChunk(in, index, size, last)));
+                }
+
+                // Chunks are written strictly in order, the CRC has to be computed sequentially anyway
+                Chunk chunk = inFlight.poll().join();
+                crc.update(chunk.data(), chunk.dataOffset(), chunk.dataLength());
+                uncompressedSize += chunk.dataLength();
+                writeFully(ByteBuffer.wrap(chunk.compressed(), 0, chunk.compressedLength()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            inFlight.forEach(task -> task.cancel(false));
+        }
+        return uncompressedSize;
+    }
+
+    private Chunk deflateChunk(FileChannel in, int index, long size, boolean last) {
+        long start = (long) index * CHUNK_SIZE;
+        int length = (int) Math.max(0, Math.min(CHUNK_SIZE, size - start));
+        int dictionaryLength = (int) Math.min(DICTIONARY_SIZE, start);
+
+        byte[] data = new byte[dictionaryLength + length];
+        int read;
+        try {
+            read = readFully(in, ByteBuffer.wrap(data), start - dictionaryLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int dataLength = Math.max(0, read - dictionaryLength);
+
+        Deflater deflater = new Deflater(level.getDeflaterLevel(), true);
+        try {
+            if (dictionaryLength > 0 && read >= dictionaryLength) {
+                deflater.setDictionary(data, 0, dictionaryLength);
+            }
+            deflater.setInput(data, dictionaryLength, dataLength);
+
+            byte[] compressed = new byte[dataLength + (dataLength >> 8) + 64];
+            int compressedLength = 0;
+            if (last) {
+                deflater.finish();
+            }
+            while (true) {
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                boolean done = last ? deflater.finished() : compressedLength < compressed.length;
+                if (done) {
+                    break;
+                }
+                if (compressedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+            }
+            return new Chunk(data, dictionaryLength, dataLength, compressed, compressedLength);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeLocalHeader(byte[] name, int method, long dosTime, boolean zip64) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(30 + name.length + (zip64 ? 20 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x04034b50);
+        header.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) method);
+        header.putInt((int) dosTime);
+        // CRC and sizes are patched in once the entry is written
+        header.putInt(0);
+        header.putInt(zip64 ? (int) ZIP32_LIMIT : 0);
+        header.putInt(zip64 ? (int) ZIP32_LIMIT : 0);
+        header.putShort((short) name.length);
+        header.putShort((short) (zip64 ? 20 : 0));
+        header.put(name);
+        if (zip64) {
+            header.putShort((short) 0x0001);
+            header.putShort((short) 16);
+            header.putLong(0);
+            header.putLong(0);
+        }
+        header.flip();
+        writeFully(header);
+    }
+
+    private void patchLocalHeader(long headerOffset, int nameLength, long crc, long compressedSize, long uncompressedSize, boolean zip64) throws IOException {
+        ByteBuffer sizes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        sizes.putInt((int) crc);
+        sizes.putInt(zip64 ? (int) ZIP32_LIMIT : (int) compressedSize);
+        sizes.putInt(zip64 ? (int) ZIP32_LIMIT : (int) uncompressedSize);
+        sizes.flip();
+        writeFully(sizes, headerOffset + 14);
+
+        if (zip64) {
+            ByteBuffer extra = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            extra.putLong(uncompressedSize);
+            extra.putLong(compressedSize);
+            extra.flip();
+            writeFully(extra, headerOffset + 30 + nameLength + 4);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = channel.position();
+
+        for (CentralEntry entry : entries) {
+            boolean zip64 = entry.zip64() || entry.headerOffset() >= ZIP32_LIMIT;
+            ByteBuffer header = ByteBuffer.allocate(46 + entry.name().length + (zip64 ? 28 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0x02014b50);
+            header.putShort((short) VERSION_ZIP64);
+            header.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+            header.putShort((short) FLAG_UTF8);
+            header.putShort((short) entry.method());
+            header.putInt((int) entry.dosTime());
+            header.putInt((int) entry.crc());
+            header.putInt(zip64 ? (int) ZIP32_LIMIT : (int) entry.compressedSize());
+            header.putInt(zip64 ? (int) ZIP32_LIMIT : (int) entry.uncompressedSize());
+            header.putShort((short) entry.name().length);
+            header.putShort((short) (zip64 ? 28 : 0));
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putInt(0);
+            header.putInt(zip64 ? (int) ZIP32_LIMIT : (int) entry.headerOffset());
+            header.put(entry.name());
+            if (zip64) {
+                header.putShort((short) 0x0001);
+                header.putShort((short) 24);
+                header.putLong(entry.uncompressedSize());
+                header.putLong(entry.compressedSize());
+                header.putLong(entry.headerOffset());
+            }
+            header.flip();
+            writeFully(header);
+        }
+
+        long centralDirectoryEnd = channel.position();
+        long centralDirectorySize = centralDirectoryEnd - centralDirectoryOffset;
+        boolean zip64 = entries.size() >= 0xFFFF || centralDirectoryOffset >= ZIP32_LIMIT || centralDirectorySize >= ZIP32_LIMIT;
+
+        ByteBuffer end = ByteBuffer.allocate((zip64 ? 56 + 20 : 0) + 22).order(ByteOrder.LITTLE_ENDIAN);
+        if (zip64) {
+            end.putInt(0x06064b50);
+            end.putLong(44);
+            end.putShort((short) VERSION_ZIP64);
+            end.putShort((short) VERSION_ZIP64);
+            end.putInt(0);
+            end.putInt(0);
+            end.putLong(entries.size());
+            end.putLong(entries.size());
+            end.putLong(centralDirectorySize);
+            end.putLong(centralDirectoryOffset);
+
+            end.putInt(0x07064b50);
+            end.putInt(0);
+            end.putLong(centralDirectoryEnd);
+            end.putInt(1);
+        }
+        end.putInt(0x06054b50);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) (zip64 ? 0xFFFF : entries.size()));
+        end.putShort((short) (zip64 ? 0xFFFF : entries.size()));
+        end.putInt(zip64 ? (int) ZIP32_LIMIT : (int) centralDirectorySize);
+        end.putInt(zip64 ? (int) ZIP32_LIMIT : (int) centralDirectoryOffset);
+        end.putShort((short) 0);
+        end.flip();
+        writeFully(end);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static long toDosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            time = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        long date = ((long) (time.getYear() - 1980) << 9) | ((long) time.getMonthValue() << 5) | time.getDayOfMonth();
+        long dayTime = ((long) time.getHour() << 11) | ((long) time.getMinute() << 5) | (time.getSecond() >> 1);
+        return (date << 16) | dayTime;
+    }
+
+    public enum CompressionLevel {
+        STORE(Deflater.NO_COMPRESSION),
+        FAST(Deflater.BEST_SPEED),
+        DEFAULT(Deflater.DEFAULT_COMPRESSION),
+        MAX(Deflater.BEST_COMPRESSION);
+
+        @Getter
+        private final int deflaterLevel;
+
+        CompressionLevel(int deflaterLevel) {
+            this.deflaterLevel = deflaterLevel;
+        }
+
+        public static CompressionLevel fromSetting(String value) {
+            if (CommonUtils.isNullOrEmpty(value)) {
+                return DEFAULT;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown backup compression level '{}'. Falling back to default.", value);
+                return DEFAULT;
+            }
+        }
+    }
+
+    private record Chunk(byte[] data, int dataOffset, int dataLength, byte[] compressed, int compressedLength) {
+    }
+
+    private record CentralEntry(byte[] name, int method, long dosTime, long crc, long compressedSize, long uncompressedSize, long headerOffset, boolean zip64) {
+    }
+}
@@ -0,0 +1,51 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * On-disk format of the daemon's own state files. JSON stays human-readable, Smile is Jackson's binary JSON
+ * encoding and is considerably smaller and faster to read and write for large setting profiles.
+ */
+@Slf4j
+public enum PersistenceFormat {
+    JSON("json", MapperUtils.getMapper(), true),
+    SMILE("smile", MapperUtils.createMapper(new SmileFactory()), false);
+
+    @Getter
+    private final String extension;
+
+    @Getter
+    private final ObjectReader reader;
+
+    @Getter
+    private final ObjectWriter writer;
+
+    PersistenceFormat(String extension, ObjectMapper mapper, boolean prettyPrint) {
+        this.extension = extension;
+        this.reader = mapper.reader();
+        this.writer = prettyPrint ? mapper.writer(new DefaultPrettyPrinter()) : mapper.writer();
+    }
+
+    public Path resolve(String baseName) {
+        return Path.of(baseName + "." + extension);
+    }
+
+    public static PersistenceFormat getConfigured() {
+        String value = ConfigUtils.get("persistence-format", "json");
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown persistence format '{}'. Falling back to json.", value);
+            return JSON;
+        }
+    }
+}
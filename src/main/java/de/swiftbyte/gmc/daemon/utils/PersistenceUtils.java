@@ -0,0 +1,93 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@Slf4j
+public class PersistenceUtils {
+
+    /**
+     * Writes a file so that readers and crashes only ever see the old or the complete new content. The data is
+     * written to a temporary sibling, synced to disk and then renamed over the target.
+     */
+    public static void writeAtomically(Path target, ContentWriter writer) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+            writer.write(out);
+            out.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("Atomic move is not supported for '{}'. Falling back to a regular move.", target);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes a state file in the given format and removes copies of it in other formats, so the next load cannot
+     * pick up an outdated one.
+     */
+    public static void writeAtomically(String baseName, PersistenceFormat format, byte[] content) throws IOException {
+        writeAtomically(format.resolve(baseName), out -> out.write(content));
+
+        for (PersistenceFormat other : PersistenceFormat.values()) {
+            if (other != format) {
+                Files.deleteIfExists(other.resolve(baseName));
+            }
+        }
+    }
+
+    /**
+     * @return the format a state file is currently stored in, preferring the configured one, or null if it does not
+     * exist in any format
+     */
+    public static PersistenceFormat findStoredFormat(String baseName) {
+        PersistenceFormat configured = PersistenceFormat.getConfigured();
+        if (Files.exists(configured.resolve(baseName))) {
+            return configured;
+        }
+
+        for (PersistenceFormat format : PersistenceFormat.values()) {
+            if (Files.exists(format.resolve(baseName))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rewrites a state file in the configured format if it is stored in another one.
+     */
+    public static void convertToConfiguredFormat(String baseName) throws IOException {
+        PersistenceFormat stored = findStoredFormat(baseName);
+        PersistenceFormat configured = PersistenceFormat.getConfigured();
+        if (stored == null || stored == configured) {
+            return;
+        }
+
+        JsonNode content = stored.getReader().readTree(Files.readAllBytes(stored.resolve(baseName)));
+        writeAtomically(baseName, configured, configured.getWriter().writeValueAsBytes(content));
+        log.info("Converted '{}' from {} to {}.", baseName, stored.getExtension(), configured.getExtension());
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -9,18 +9,19 @@ import de.swiftbyte.gmc.daemon.cache.GameServerCacheModel;
 import de.swiftbyte.gmc.daemon.server.AsaServer;
 import de.swiftbyte.gmc.daemon.server.AseServer;
 import de.swiftbyte.gmc.daemon.server.GameServer;
+import de.swiftbyte.gmc.daemon.service.NodeCache;
+import de.swiftbyte.gmc.daemon.service.ProcessIndexService;
+import de.swiftbyte.gmc.daemon.utils.MapperUtils;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -107,6 +108,7 @@ public class ServerUtils {
         if (handle.isPresent()) {
             log.debug("Server process running... Killing process...");
             handle.get().destroy();
+            ProcessIndexService.invalidate();
         }
     }
 
@@ -114,88 +116,41 @@ public class ServerUtils {
 
         log.debug("Getting cached server information...");
 
-        File cacheFile = new File("./cache.json");
+        CacheModel cacheModel = NodeCache.getCacheModel();
 
-        if (!cacheFile.exists()) {
-            log.debug("No cache file found. Skipping...");
+        if (cacheModel == null || cacheModel.getGameServerCacheModelHashMap() == null) {
             return;
         }
 
-        try {
-            CacheModel cacheModel = CommonUtils.getObjectReader().readValue(cacheFile, CacheModel.class);
-            HashMap<String, GameServerCacheModel> gameServerCacheModelHashMap = cacheModel.getGameServerCacheModelHashMap();
-
-            gameServerCacheModelHashMap.forEach((s, gameServerCacheModel) -> {
+        cacheModel.getGameServerCacheModelHashMap().forEach((s, gameServerCacheModel) -> {
 
-                if(gameServerCacheModel.getSettings() == null) {
-                    log.error("Could not create server {} from cache: Missing Settings", s);
-                    return;
-                }
-
-                if(gameServerCacheModel.getInstallDir() == null) {
-                    log.error("Could not create server {} from cache: Missing Install Dir", s);
-                    return;
-                }
+            if(gameServerCacheModel.getSettings() == null) {
+                log.error("Could not create server {} from cache: Missing Settings", s);
+                return;
+            }
 
-                switch (gameServerCacheModel.getGameType()) {
-                    case ARK_ASCENDED ->
-                            new AsaServer(s, gameServerCacheModel.getFriendlyName(), Path.of(gameServerCacheModel.getInstallDir()), gameServerCacheModel.getSettings(), false);
-                    case ARK_EVOLVED ->
-                            new AseServer(s, gameServerCacheModel.getFriendlyName(), Path.of(gameServerCacheModel.getInstallDir()), gameServerCacheModel.getSettings(), false);
-                }
-            });
+            if(gameServerCacheModel.getInstallDir() == null) {
+                log.error("Could not create server {} from cache: Missing Install Dir", s);
+                return;
+            }
 
-        } catch (IOException e) {
-            log.error("An unknown error occurred while getting cached information.", e);
-        }
+            switch (gameServerCacheModel.getGameType()) {
+                case ARK_ASCENDED ->
+                        new AsaServer(s, gameServerCacheModel.getFriendlyName(), Path.of(gameServerCacheModel.getInstallDir()), gameServerCacheModel.getSettings(), false);
+                case ARK_EVOLVED ->
+                        new AseServer(s, gameServerCacheModel.getFriendlyName(), Path.of(gameServerCacheModel.getInstallDir()), gameServerCacheModel.getSettings(), false);
+            }
+        });
     }
 
     public static String getCachedServerInstallDir(String id) {
-
-        File cacheFile = new File("./cache.json");
-
-        if (!cacheFile.exists()) {
-            log.debug("No cache file found. Skipping...");
-            return null;
-        }
-
-        try {
-            CacheModel cacheModel = CommonUtils.getObjectReader().readValue(cacheFile, CacheModel.class);
-            HashMap<String, GameServerCacheModel> gameServerCacheModelHashMap = cacheModel.getGameServerCacheModelHashMap();
-
-            for (Map.Entry<String, GameServerCacheModel> entry : gameServerCacheModelHashMap.entrySet()) {
-                if (entry.getKey().equals(id)) {
-                    return entry.getValue().getInstallDir();
-                }
-            }
-
-        } catch (IOException e) {
-            log.error("An unknown error occurred while getting cached information.", e);
-        }
-        return null;
+        GameServerCacheModel cached = NodeCache.getServer(id);
+        return cached != null ? cached.getInstallDir() : null;
     }
 
     public static SettingProfile getCachedGameServerSettings(String id) {
-
-        File cacheFile = new File("./cache.json");
-
-        if (!cacheFile.exists()) {
-            log.debug("No cache file found. Skipping...");
-            return null;
-        }
-
-        try {
-            CacheModel cacheModel = CommonUtils.getObjectReader().readValue(cacheFile, CacheModel.class);
-            HashMap<String, GameServerCacheModel> gameServerCacheModelHashMap = cacheModel.getGameServerCacheModelHashMap();
-
-            GameServerCacheModel cached = gameServerCacheModelHashMap != null ? gameServerCacheModelHashMap.get(id) : null;
-            if (cached != null) {
-                return cached.getSettings();
-            }
-        } catch (IOException e) {
-            log.error("An unknown error occurred while getting cached settings.", e);
-        }
-        return null;
+        GameServerCacheModel cached = NodeCache.getServer(id);
+        return cached != null ? cached.getSettings() : null;
     }
 
     public static void writeIniFiles(GameServer server, Path installDir) {
@@ -253,7 +208,7 @@ public class ServerUtils {
                 return null;
             }
 
-            return CommonUtils.getObjectReader().readValue(response.body().string(), SettingProfile.class);
+            return MapperUtils.readerFor(SettingProfile.class).readValue(response.body().string());
         } catch (IOException e) {
             log.error("An unknown error occurred.", e);
             return null;
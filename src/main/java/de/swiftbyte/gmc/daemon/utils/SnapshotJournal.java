@@ -0,0 +1,200 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Append-only journal of changes to state that is persisted as a snapshot.
+ * <p>
+ * Every change appends one JSON line to the journal and syncs it, so a mutation costs a single small write instead
+ * of rewriting the whole state. Once the journal grows too long it is folded into a new snapshot by the
+ * {@link SnapshotWriter}, which is expected to replace the old snapshot atomically. Replaying the journal has to be
+ * idempotent, so a crash between writing the snapshot and truncating the journal loses nothing.
+ * <p>
+ * If the snapshot or the journal cannot be read, nothing is compacted until the next {@link #load}, so both can
+ * still be loaded on the next start instead of being replaced with what was readable.
+ */
+@Slf4j
+public class SnapshotJournal<E> {
+
+    private final String name;
+    private final Path file;
+    private final Class<E> entryType;
+    private final SnapshotWriter snapshotWriter;
+    private final IntSupplier compactionThreshold;
+
+    private FileOutputStream journal;
+    private int entries;
+    private boolean loadIncomplete;
+
+    /**
+     * @param name                the name of the persisted state in log messages
+     * @param compactionThreshold the number of entries after which the journal is compacted, read on every append
+     */
+    public SnapshotJournal(String name, Path file, Class<E> entryType, SnapshotWriter snapshotWriter, IntSupplier compactionThreshold) {
+        this.name = name;
+        this.file = file;
+        this.entryType = entryType;
+        this.snapshotWriter = snapshotWriter;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Reads the snapshot and replays the journal onto it.
+     *
+     * @return the number of replayed entries
+     */
+    public synchronized int load(SnapshotReader snapshotReader, Consumer<E> replay) {
+        loadIncomplete = false;
+
+        try {
+            snapshotReader.read();
+        } catch (IOException e) {
+            // A compaction would replace the snapshot with the journal alone
+            loadIncomplete = true;
+            log.error("An unknown error occurred while loading the {}. Its journal is kept until it can be read again.", name, e);
+        }
+
+        entries = replay(replay);
+        return entries;
+    }
+
+    public synchronized void append(List<E> newEntries) {
+        try {
+            if (journal == null) {
+                journal = new FileOutputStream(file.toFile(), true);
+            }
+
+            for (E entry : newEntries) {
+                journal.write(MapperUtils.writerFor(entryType).writeValueAsBytes(entry));
+                journal.write('\n');
+            }
+            journal.getChannel().force(false);
+            entries += newEntries.size();
+        } catch (IOException e) {
+            log.error("An unknown error occurred while saving the {}.", name, e);
+            return;
+        }
+
+        if (entries >= compactionThreshold.getAsInt()) {
+            compact();
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot and truncates it.
+     */
+    public synchronized void compact() {
+        if (loadIncomplete) {
+            log.debug("Skipping compaction of the {} because it could not be loaded completely.", name);
+            return;
+        }
+
+        try {
+            snapshotWriter.write();
+
+            closeJournal();
+            journal = new FileOutputStream(file.toFile(), false);
+            entries = 0;
+            log.debug("Compacted the {}.", name);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while saving the {}.", name, e);
+        }
+    }
+
+    private int replay(Consumer<E> replay) {
+        closeJournal();
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            loadIncomplete = true;
+            log.error("An unknown error occurred while replaying the {} journal.", name, e);
+            return 0;
+        }
+
+        // Everything after the last line break is the rest of a crashed write. It is cut off, otherwise the next
+        // entry would be appended to the same line and become unreadable as well
+        int end = lastLineBreak(content) + 1;
+        if (end < content.length) {
+            log.warn("Discarding incomplete last {} journal entry.", name);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            } catch (IOException e) {
+                log.error("An unknown error occurred while truncating the {} journal.", name, e);
+            }
+        }
+
+        int replayed = 0;
+        for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            E entry;
+            try {
+                entry = MapperUtils.readerFor(entryType).readValue(line);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable {} journal entry.", name, e);
+                continue;
+            }
+
+            replay.accept(entry);
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.debug("Failed to close {} journal.", name, e);
+        }
+        journal = null;
+    }
+
+    private static int lastLineBreak(byte[] content) {
+        for (int i = content.length - 1; i >= 0; i--) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @FunctionalInterface
+    public interface SnapshotReader {
+
+        /**
+         * Loads the snapshot into memory, doing nothing if there is none yet.
+         */
+        void read() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface SnapshotWriter {
+
+        /**
+         * Replaces the snapshot with the current state.
+         */
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,10 @@
+package de.swiftbyte.gmc.daemon.utils.rcon;
+
+import java.io.IOException;
+
+public class RconAuthenticationException extends IOException {
+
+    public RconAuthenticationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,233 @@
+package de.swiftbyte.gmc.daemon.utils.rcon;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal Source RCON client that multiplexes several in-flight commands over one connection.
+ * <p>
+ * Every command gets its own request id and completes the returned future once the response packet with the
+ * same id arrives. Responses are read by a virtual thread, so callers never block on socket I/O.
+ * Only the first response packet of a command is returned, which covers every command the daemon sends.
+ */
+@Slf4j
+public class RconClient implements Closeable {
+
+    private static final int TYPE_RESPONSE_VALUE = 0;
+    private static final int TYPE_EXEC_COMMAND = 2;
+    private static final int TYPE_AUTH_RESPONSE = 2;
+    private static final int TYPE_AUTH = 3;
+
+    // id + type + two null terminators
+    private static final int MIN_PACKET_SIZE = 10;
+    private static final int MAX_PACKET_SIZE = 1024 * 1024;
+
+    private final String host;
+    private final int port;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    private final ConcurrentHashMap<Integer, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    private RconClient(String host, int port, Socket socket) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = socket.getOutputStream();
+    }
+
+    /**
+     * Opens a connection and authenticates. Blocks until the server accepted or rejected the password.
+     */
+    public static RconClient connect(String host, int port, String password, Duration timeout) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+
+            RconClient client = new RconClient(host, port, socket);
+            client.authenticate(password, timeout);
+            Thread.ofVirtual().name("rcon-reader-" + port).start(client::readLoop);
+            return client;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void authenticate(String password, Duration timeout) throws IOException {
+        int authId = nextRequestId();
+
+        socket.setSoTimeout((int) timeout.toMillis());
+        try {
+            write(authId, TYPE_AUTH, password);
+
+            // Some servers send an empty response value before the actual auth response
+            while (true) {
+                Packet packet = read();
+                if (packet.type() != TYPE_AUTH_RESPONSE) {
+                    continue;
+                }
+                if (packet.id() == -1) {
+                    throw new RconAuthenticationException("RCON authentication on port " + port + " was rejected.");
+                }
+                if (packet.id() == authId) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            throw new IOException("RCON authentication on port " + port + " timed out.", e);
+        } finally {
+            if (!socket.isClosed()) {
+                socket.setSoTimeout(0);
+            }
+        }
+    }
+
+    /**
+     * Sends a command without waiting for its response.
+     *
+     * @return a future completing with the response body, or exceptionally with an {@link IOException} when the
+     * connection breaks and a {@link java.util.concurrent.TimeoutException} when the server does not answer in time
+     */
+    public CompletableFuture<String> command(String command, Duration timeout) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("RCON connection to " + host + ":" + port + " is closed."));
+        }
+
+        int id = nextRequestId();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        pending.put(id, future);
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((_, _) -> pending.remove(id));
+
+        try {
+            write(id, TYPE_EXEC_COMMAND, command);
+        } catch (IOException e) {
+            close(e);
+        }
+        return future;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        close(null);
+    }
+
+    private void close(Throwable cause) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+
+        IOException failure = new IOException("RCON connection to " + host + ":" + port + " was closed.", cause);
+        pending.values().forEach(future -> future.completeExceptionally(failure));
+        pending.clear();
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                Packet packet = read();
+                if (packet.type() != TYPE_RESPONSE_VALUE) {
+                    continue;
+                }
+                CompletableFuture<String> future = pending.remove(packet.id());
+                if (future != null) {
+                    future.complete(packet.body());
+                } else {
+                    log.debug("Discarding RCON response for unknown or timed out request {} on port {}.", packet.id(), port);
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                log.debug("RCON connection on port {} broke.", port, e);
+            }
+            close(e);
+        }
+    }
+
+    private int nextRequestId() {
+        // -1 is reserved for failed authentication
+        return requestIds.updateAndGet(id -> id == Integer.MAX_VALUE ? 1 : id + 1);
+    }
+
+    private void write(int id, int type, String body) throws IOException {
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + MIN_PACKET_SIZE + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MIN_PACKET_SIZE + payload.length);
+        buffer.putInt(id);
+        buffer.putInt(type);
+        buffer.put(payload);
+        buffer.put((byte) 0);
+        buffer.put((byte) 0);
+
+        synchronized (out) {
+            out.write(buffer.array());
+            out.flush();
+        }
+    }
+
+    private Packet read() throws IOException {
+        byte[] header = new byte[4];
+        try {
+            in.readFully(header);
+        } catch (EOFException e) {
+            throw new IOException("RCON server on port " + port + " closed the connection.", e);
+        }
+
+        int size = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (size < MIN_PACKET_SIZE || size > MAX_PACKET_SIZE) {
+            throw new IOException("Received malformed RCON packet with size " + size + " on port " + port + ".");
+        }
+
+        byte[] data = new byte[size];
+        in.readFully(data);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int id = buffer.getInt();
+        int type = buffer.getInt();
+
+        int bodyLength = size - 8;
+        while (bodyLength > 0 && data[8 + bodyLength - 1] == 0) {
+            bodyLength--;
+        }
+
+        return new Packet(id, type, new String(data, 8, bodyLength, StandardCharsets.UTF_8));
+    }
+
+    private record Packet(int id, int type, String body) {
+    }
+}
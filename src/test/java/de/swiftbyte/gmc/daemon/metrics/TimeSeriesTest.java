@@ -0,0 +1,121 @@
+package de.swiftbyte.gmc.daemon.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeSeriesTest {
+
+    private static final long SECOND = 1000;
+
+    @Test
+    void valuesAreFoldedIntoTheBucketOfTheirTimestamp() {
+        TimeSeries series = new TimeSeries(10 * SECOND, 8);
+        series.record(10 * SECOND, 4);
+        series.record(15 * SECOND, 2);
+        series.record(19_999, 6);
+        series.record(20 * SECOND, 1);
+
+        List<TimeSeries.Bucket> buckets = series.getBuckets(8);
+        assertEquals(2, buckets.size());
+        assertEquals(new TimeSeries.Bucket(10 * SECOND, 2, 6, 4, 12, 3), buckets.get(0));
+        assertEquals(new TimeSeries.Bucket(20 * SECOND, 1, 1, 1, 1, 1), buckets.get(1));
+    }
+
+    @Test
+    void lateValuesJoinTheirOriginalBucket() {
+        TimeSeries series = new TimeSeries(10 * SECOND, 8);
+        series.record(10 * SECOND, 4);
+        series.record(30 * SECOND, 5);
+
+        // Arrives after the next sample, e.g. an RCON command that took long to complete
+        series.record(12 * SECOND, 8);
+
+        List<TimeSeries.Bucket> buckets = series.getBuckets(8);
+        assertEquals(2, buckets.size());
+        assertEquals(new TimeSeries.Bucket(10 * SECOND, 4, 8, 6, 12, 2), buckets.get(0));
+
+        // The last value stays the newest one, not the one recorded last
+        assertEquals(5, series.summarize(0).last());
+    }
+
+    @Test
+    void lateValuesWithoutABucketAreDropped() {
+        TimeSeries series = new TimeSeries(10 * SECOND, 8);
+        series.record(10 * SECOND, 4);
+        series.record(30 * SECOND, 5);
+
+        // Nothing was recorded between 20 and 30 seconds, so there is no bucket to fold into
+        series.record(25 * SECOND, 100);
+        series.record(5 * SECOND, 100);
+
+        assertEquals(List.of(10 * SECOND, 30 * SECOND), series.getBuckets(8).stream().map(TimeSeries.Bucket::timestamp).toList());
+        assertEquals(5, series.summarize(0).max());
+    }
+
+    @Test
+    void oldestBucketsAreOverwrittenOnceTheRingIsFull() {
+        TimeSeries series = new TimeSeries(SECOND, 3);
+        for (int second = 0; second < 5; second++) {
+            series.record(second * SECOND, second);
+        }
+
+        assertEquals(List.of(2 * SECOND, 3 * SECOND, 4 * SECOND), series.getBuckets(10).stream().map(TimeSeries.Bucket::timestamp).toList());
+        assertEquals(List.of(3 * SECOND, 4 * SECOND), series.getBuckets(2).stream().map(TimeSeries.Bucket::timestamp).toList());
+
+        TimeSeries.Summary summary = series.summarize(0);
+        assertEquals(3, summary.count());
+        assertEquals(2, summary.min());
+        assertEquals(4, summary.max());
+
+        // Late values for overwritten buckets are dropped
+        series.record(SECOND, 100);
+        assertEquals(4, series.summarize(0).max());
+    }
+
+    @Test
+    void coversTellsWhetherOlderBucketsWereOverwritten() {
+        TimeSeries series = new TimeSeries(SECOND, 3);
+        series.record(0, 1);
+        series.record(SECOND, 1);
+        series.record(2 * SECOND, 1);
+        assertTrue(series.covers(0));
+
+        series.record(3 * SECOND, 1);
+        assertFalse(series.covers(0));
+        assertTrue(series.covers(SECOND));
+        assertTrue(series.covers(3 * SECOND));
+    }
+
+    @Test
+    void summarizeOnlyIncludesBucketsFromTheGivenTimeOn() {
+        TimeSeries series = new TimeSeries(10 * SECOND, 8);
+        series.record(0, 100);
+        series.record(10 * SECOND, 2);
+        series.record(20 * SECOND, 4);
+
+        // A bucket that ends after the given time still counts
+        TimeSeries.Summary summary = series.summarize(15 * SECOND);
+        assertEquals(2, summary.count());
+        assertEquals(2, summary.min());
+        assertEquals(4, summary.max());
+        assertEquals(3, summary.mean());
+        assertEquals(4, summary.last());
+
+        assertSame(TimeSeries.Summary.EMPTY, series.summarize(30 * SECOND));
+        assertSame(TimeSeries.Summary.EMPTY, new TimeSeries(SECOND, 4).summarize(0));
+    }
+
+    @Test
+    void negativeTimestampsUseTheBucketBelow() {
+        TimeSeries series = new TimeSeries(10 * SECOND, 4);
+        series.record(-5 * SECOND, 1);
+
+        assertEquals(-10 * SECOND, series.getBuckets(1).getFirst().timestamp());
+    }
+}
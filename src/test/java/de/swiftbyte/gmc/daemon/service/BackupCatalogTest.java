@@ -0,0 +1,151 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.common.entity.Backup;
+import de.swiftbyte.gmc.daemon.utils.PersistenceFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The catalog works on {@code ./backups.*}, so this runs in the test working directory configured for surefire.
+ */
+class BackupCatalogTest {
+
+    private static final Path JOURNAL_FILE = Path.of("./backups.journal");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (PersistenceFormat format : PersistenceFormat.values()) {
+            Files.deleteIfExists(format.resolve("./backups"));
+        }
+        Files.deleteIfExists(JOURNAL_FILE);
+
+        // Starts from an empty snapshot and a fresh journal
+        BackupCatalog.load();
+        BackupCatalog.compact();
+    }
+
+    @Test
+    void changesOnlyAppendToTheJournal() throws IOException {
+        byte[] snapshot = Files.readAllBytes(PersistenceFormat.JSON.resolve("./backups"));
+
+        BackupCatalog.add(backup("backup-1"));
+        BackupCatalog.add(backup("backup-2"));
+        BackupCatalog.remove("backup-1");
+        BackupCatalog.remove("unknown");
+
+        assertEquals(3, Files.readAllLines(JOURNAL_FILE).size());
+        assertEquals(new String(snapshot, StandardCharsets.UTF_8), Files.readString(PersistenceFormat.JSON.resolve("./backups")));
+        assertEquals(Set.of("backup-2"), BackupCatalog.getBackups().keySet());
+    }
+
+    @Test
+    void removeAllWritesOneLinePerRemovedBackup() throws IOException {
+        BackupCatalog.add(backup("backup-1"));
+        BackupCatalog.add(backup("backup-2"));
+        BackupCatalog.add(backup("backup-3"));
+
+        BackupCatalog.removeAll(List.of("backup-1", "backup-3", "unknown"));
+
+        assertEquals(5, Files.readAllLines(JOURNAL_FILE).size());
+        assertEquals(Set.of("backup-2"), BackupCatalog.getBackups().keySet());
+    }
+
+    @Test
+    void loadReplaysTheJournalAndSkipsATruncatedLastLine() throws IOException {
+        BackupCatalog.add(backup("backup-1"));
+        BackupCatalog.add(backup("backup-2"));
+        BackupCatalog.add(backup("backup-3"));
+        BackupCatalog.remove("backup-1");
+
+        // The daemon died in the middle of the next write
+        Files.writeString(JOURNAL_FILE, "{\"operation\":\"DELETED\",\"backupId\":\"back", StandardOpenOption.APPEND);
+
+        BackupCatalog.load();
+
+        assertEquals(Set.of("backup-2", "backup-3"), BackupCatalog.getBackups().keySet());
+        assertEquals("server-1", BackupCatalog.getBackups().get("backup-2").getServerId());
+
+        // Replayed changes were compacted into the snapshot and the journal starts over
+        assertEquals(0, Files.size(JOURNAL_FILE));
+        BackupCatalog.load();
+        assertEquals(Set.of("backup-2", "backup-3"), BackupCatalog.getBackups().keySet());
+
+        BackupCatalog.add(backup("backup-4"));
+        assertEquals(1, Files.readAllLines(JOURNAL_FILE).size());
+        BackupCatalog.load();
+        assertEquals(Set.of("backup-2", "backup-3", "backup-4"), BackupCatalog.getBackups().keySet());
+    }
+
+    @Test
+    void aTruncatedOnlyLineDoesNotSwallowTheNextEntry() throws IOException {
+        Files.writeString(JOURNAL_FILE, "{\"operation\":\"CREATED\",\"backup\":{\"backupId\":\"back");
+
+        BackupCatalog.load();
+        assertEquals(Set.of(), BackupCatalog.getBackups().keySet());
+
+        BackupCatalog.add(backup("backup-1"));
+        BackupCatalog.load();
+        assertEquals(Set.of("backup-1"), BackupCatalog.getBackups().keySet());
+    }
+
+    @Test
+    void anUnreadableSnapshotIsNotCompactedOver() throws IOException {
+        BackupCatalog.add(backup("backup-1"));
+        BackupCatalog.compact();
+        BackupCatalog.add(backup("backup-2"));
+
+        // E.g. a snapshot damaged on disk, its backups must not be dropped by the next compaction
+        Path snapshotFile = PersistenceFormat.JSON.resolve("./backups");
+        byte[] snapshot = Files.readAllBytes(snapshotFile);
+        Files.writeString(snapshotFile, "{\"backup-1\":");
+
+        BackupCatalog.load();
+        BackupCatalog.add(backup("backup-3"));
+        BackupCatalog.compact();
+
+        assertEquals("{\"backup-1\":", Files.readString(snapshotFile));
+        assertEquals(2, Files.readAllLines(JOURNAL_FILE).size());
+
+        // Once the snapshot is readable again, nothing is missing
+        Files.write(snapshotFile, snapshot);
+        BackupCatalog.load();
+        assertEquals(Set.of("backup-1", "backup-2", "backup-3"), BackupCatalog.getBackups().keySet());
+    }
+
+    @Test
+    void replayingAJournalAlreadyInTheSnapshotChangesNothing() throws IOException {
+        BackupCatalog.add(backup("backup-1"));
+        BackupCatalog.add(backup("backup-2"));
+        BackupCatalog.remove("backup-1");
+
+        // Crash after the new snapshot was written but before the journal was truncated
+        byte[] journal = Files.readAllBytes(JOURNAL_FILE);
+        BackupCatalog.compact();
+        Files.write(JOURNAL_FILE, journal);
+
+        BackupCatalog.load();
+
+        assertEquals(Set.of("backup-2"), BackupCatalog.getBackups().keySet());
+        assertTrue(Files.exists(PersistenceFormat.JSON.resolve("./backups")));
+        assertEquals(0, Files.size(JOURNAL_FILE));
+    }
+
+    private static Backup backup(String backupId) {
+        Backup backup = new Backup();
+        backup.setBackupId(backupId);
+        backup.setServerId("server-1");
+        backup.setName(backupId);
+        return backup;
+    }
+}
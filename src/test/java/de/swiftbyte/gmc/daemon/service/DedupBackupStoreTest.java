@@ -0,0 +1,190 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.Node;
+import de.swiftbyte.gmc.daemon.utils.BackupArchiveUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DedupBackupStoreTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private Path saves;
+    private Node previousNode;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        saves = Files.createDirectories(directory.resolve("saves"));
+
+        previousNode = Node.INSTANCE;
+        Node node = mock(Node.class);
+        when(node.getBackupPath()).thenReturn(directory.resolve("backups").toString());
+        Node.INSTANCE = node;
+
+        // Reference counts are cached per process and would otherwise leak from the store of another test
+        Field referenceCounts = DedupBackupStore.class.getDeclaredField("referenceCounts");
+        referenceCounts.setAccessible(true);
+        referenceCounts.set(null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Node.INSTANCE = previousNode;
+    }
+
+    @Test
+    void storedBackupRestoresIdentically() throws IOException {
+        byte[] map = content(2 * MIB + 777, 1);
+        byte[] profile = content(4096, 2);
+        List<BackupArchiveUtils.SaveFile> files = List.of(
+                saveFile("TheIsland.ark", map, 1_700_000_000_000L),
+                saveFile("Profiles/1234.arkprofile", profile, 1_700_000_100_000L),
+                saveFile("empty.arktribe", new byte[0], 1_700_000_200_000L)
+        );
+
+        assertTrue(DedupBackupStore.storeBackup("backup-1", "server-1", files, Deflater.DEFAULT_COMPRESSION) > 0);
+        assertTrue(DedupBackupStore.hasBackup("backup-1"));
+
+        Path target = directory.resolve("restore");
+        DedupBackupStore.restoreBackup("backup-1", target, _ -> true);
+
+        assertArrayEquals(map, Files.readAllBytes(target.resolve("TheIsland.ark")));
+        assertArrayEquals(profile, Files.readAllBytes(target.resolve("Profiles/1234.arkprofile")));
+        assertArrayEquals(new byte[0], Files.readAllBytes(target.resolve("empty.arktribe")));
+        assertEquals(1_700_000_100_000L, Files.getLastModifiedTime(target.resolve("Profiles/1234.arkprofile")).toMillis());
+    }
+
+    @Test
+    void restoreOnlyWritesMatchingFiles() throws IOException {
+        List<BackupArchiveUtils.SaveFile> files = List.of(
+                saveFile("TheIsland.ark", content(1000, 1), 0),
+                saveFile("1234.arkprofile", content(1000, 2), 0)
+        );
+        DedupBackupStore.storeBackup("backup-1", "server-1", files, Deflater.BEST_SPEED);
+
+        Path target = directory.resolve("restore");
+        DedupBackupStore.restoreBackup("backup-1", target, name -> name.endsWith(".arkprofile"));
+
+        assertTrue(Files.exists(target.resolve("1234.arkprofile")));
+        assertFalse(Files.exists(target.resolve("TheIsland.ark")));
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws IOException {
+        List<BackupArchiveUtils.SaveFile> files = List.of(saveFile("TheIsland.ark", content(3 * MIB, 1), 0));
+
+        DedupBackupStore.storeBackup("backup-1", "server-1", files, Deflater.BEST_SPEED);
+        long chunks = countChunks();
+
+        assertEquals(0, DedupBackupStore.storeBackup("backup-2", "server-1", files, Deflater.BEST_SPEED));
+        assertEquals(chunks, countChunks());
+    }
+
+    @Test
+    void deletionKeepsChunksOfOtherBackups() throws IOException {
+        byte[] shared = content(MIB, 1);
+        byte[] onlyFirst = content(MIB, 2);
+        byte[] onlySecond = content(MIB, 3);
+
+        DedupBackupStore.storeBackup("backup-1", "server-1", List.of(saveFile("a.ark", shared, 0), saveFile("b.ark", onlyFirst, 0)), Deflater.BEST_SPEED);
+        DedupBackupStore.storeBackup("backup-2", "server-1", List.of(saveFile("a.ark", shared, 0), saveFile("c.ark", onlySecond, 0)), Deflater.BEST_SPEED);
+        assertEquals(3, countChunks());
+
+        DedupBackupStore.deleteBackup("backup-1");
+        assertFalse(DedupBackupStore.hasBackup("backup-1"));
+        assertEquals(2, countChunks());
+
+        Path target = directory.resolve("restore");
+        DedupBackupStore.restoreBackup("backup-2", target, _ -> true);
+        assertArrayEquals(shared, Files.readAllBytes(target.resolve("a.ark")));
+        assertArrayEquals(onlySecond, Files.readAllBytes(target.resolve("c.ark")));
+
+        DedupBackupStore.deleteBackup("backup-2");
+        assertEquals(0, countChunks());
+
+        // Deleting an unknown backup is a no-op
+        DedupBackupStore.deleteBackup("backup-2");
+    }
+
+    @Test
+    void orphanedChunksAreCleanedUp() throws IOException {
+        DedupBackupStore.storeBackup("backup-1", "server-1", List.of(saveFile("a.ark", content(MIB, 1), 0)), Deflater.BEST_SPEED);
+        DedupBackupStore.storeBackup("backup-2", "server-1", List.of(saveFile("b.ark", content(MIB, 2), 0)), Deflater.BEST_SPEED);
+
+        // Left behind by a backup that failed before its manifest was written
+        String orphanHash = "ab" + "0".repeat(62);
+        Path orphan = Files.createDirectories(chunkDirectory().resolve("ab")).resolve(orphanHash);
+        Files.write(orphan, new byte[]{1, 2, 3});
+
+        DedupBackupStore.deleteBackup("backup-1");
+
+        assertFalse(Files.exists(orphan));
+        assertEquals(1, countChunks());
+        DedupBackupStore.restoreBackup("backup-2", directory.resolve("restore"), _ -> true);
+    }
+
+    @Test
+    void corruptChunksFailTheRestore() throws IOException {
+        DedupBackupStore.storeBackup("backup-1", "server-1", List.of(saveFile("a.ark", content(MIB, 1), 0)), Deflater.BEST_SPEED);
+
+        Path chunk;
+        try (Stream<Path> chunks = Files.walk(chunkDirectory())) {
+            chunk = chunks.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+        byte[] compressed = Files.readAllBytes(chunk);
+        compressed[compressed.length / 2] ^= 0x55;
+        Files.write(chunk, compressed);
+
+        assertThrows(IOException.class, () -> DedupBackupStore.restoreBackup("backup-1", directory.resolve("restore"), _ -> true));
+    }
+
+    private BackupArchiveUtils.SaveFile saveFile(String name, byte[] content, long lastModified) throws IOException {
+        Path file = saves.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return new BackupArchiveUtils.SaveFile(file, name, content.length, lastModified);
+    }
+
+    private Path chunkDirectory() {
+        return directory.resolve("backups").resolve(".dedup").resolve("chunks");
+    }
+
+    private long countChunks() throws IOException {
+        if (!Files.isDirectory(chunkDirectory())) {
+            return 0;
+        }
+        try (Stream<Path> chunks = Files.walk(chunkDirectory())) {
+            return chunks.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static byte[] content(int length, long seed) {
+        byte[] content = new byte[length];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,89 @@
+package de.swiftbyte.gmc.daemon.service;
+
+import de.swiftbyte.gmc.daemon.utils.rcon.FakeRconServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RconServiceTest {
+
+    private static final String SERVER_ID = "rcon-service-test";
+    private static final String PASSWORD = "secret";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private FakeRconServer server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        RconService.closeSession(SERVER_ID);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void connectionIsReusedForEveryCommand() throws Exception {
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> connection.respond(id, connection.getNumber() + ":" + command));
+
+        assertEquals("1:ListPlayers", send("ListPlayers", TIMEOUT));
+        assertEquals("1:SaveWorld", send("SaveWorld", TIMEOUT));
+        assertEquals("1:GetChat", send("GetChat", TIMEOUT));
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    void staleConnectionIsReplacedTransparently() throws Exception {
+        // The first connection dies with the second command, like a server that dropped an idle connection
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> {
+            if (connection.getNumber() == 1 && command.equals("SaveWorld")) {
+                connection.close();
+                return;
+            }
+            connection.respond(id, connection.getNumber() + ":" + command);
+        });
+
+        assertEquals("1:ListPlayers", send("ListPlayers", TIMEOUT));
+        assertEquals("2:SaveWorld", send("SaveWorld", TIMEOUT));
+        assertEquals("2:GetChat", send("GetChat", TIMEOUT));
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    @Test
+    void timeoutsAreNotRetried() throws Exception {
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> {
+            if (!command.equals("hang")) {
+                connection.respond(id, connection.getNumber() + ":" + command);
+            }
+        });
+
+        assertEquals("1:ListPlayers", send("ListPlayers", TIMEOUT));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> send("hang", Duration.ofMillis(100)));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertEquals("1:GetChat", send("GetChat", TIMEOUT));
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    void changedPasswordOpensANewConnection() throws Exception {
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> connection.respond(id, connection.getNumber() + ":" + command));
+
+        assertEquals("1:ListPlayers", send("ListPlayers", TIMEOUT));
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> RconService.sendCommandAsync(SERVER_ID, server.getPort(), "changed", "ListPlayers", TIMEOUT).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    private String send(String command, Duration timeout) throws Exception {
+        return RconService.sendCommandAsync(SERVER_ID, server.getPort(), PASSWORD, command, timeout).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,59 @@
+package de.swiftbyte.gmc.daemon.stomp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StompOutboundQueueTest {
+
+    @Test
+    void overflowingCriticalPacketsAreSpilledInOrder() throws InterruptedException {
+        StompOutboundQueue queue = new StompOutboundQueue(2, 2);
+        List<String> spilled = new ArrayList<>();
+        List<String> sent = new ArrayList<>();
+
+        for (int i = 1; i <= 4; i++) {
+            String packet = "packet-" + i;
+            queue.submitCritical(() -> sent.add(packet), () -> spilled.add(packet));
+        }
+
+        assertEquals(List.of("packet-1", "packet-2"), spilled);
+        assertEquals(2, queue.getSpilledCritical());
+        assertEquals(0, queue.getDroppedCritical());
+
+        queue.take().run();
+        queue.take().run();
+        assertEquals(List.of("packet-3", "packet-4"), sent);
+    }
+
+    @Test
+    void criticalPacketsWithoutSpillAreDropped() throws InterruptedException {
+        StompOutboundQueue queue = new StompOutboundQueue(1, 1);
+        List<String> sent = new ArrayList<>();
+
+        queue.submitCritical(() -> sent.add("login"));
+        queue.submitCritical(() -> sent.add("logout"));
+
+        assertEquals(1, queue.getDroppedCritical());
+        queue.take().run();
+        assertEquals(List.of("logout"), sent);
+    }
+
+    @Test
+    void controlTasksRunBeforeQueuedPackets() throws InterruptedException {
+        StompOutboundQueue queue = new StompOutboundQueue(2, 2);
+        List<String> sent = new ArrayList<>();
+
+        queue.submitNonCritical("heartbeat", () -> sent.add("heartbeat"));
+        queue.submitCritical(() -> sent.add("state"));
+        queue.submitControl(() -> sent.add("replay"));
+
+        for (int i = 0; i < 3; i++) {
+            queue.take().run();
+        }
+        assertEquals(List.of("replay", "state", "heartbeat"), sent);
+    }
+}
@@ -0,0 +1,132 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import de.swiftbyte.gmc.common.entity.GameServerState;
+import de.swiftbyte.gmc.common.entity.ResourceUsage;
+import de.swiftbyte.gmc.common.packet.from.daemon.node.NodeHeartbeatPacket;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeartbeatDeltaEncoderTest {
+
+    @Test
+    void firstFrameIsAKeyframeWithAllServers() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(6, 1, 1);
+
+        HeartbeatDeltaEncoder.Frame frame = encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10), update("b", GameServerState.OFFLINE, 0, 0)));
+
+        assertTrue(frame.keyframe());
+        assertEquals(List.of("a", "b"), ids(frame));
+    }
+
+    @Test
+    void acknowledgedServersAreOnlySentWhenTheyChange() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(6, 1, 1);
+        encoder.acknowledge(encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10), update("b", GameServerState.ONLINE, 5, 10))));
+
+        HeartbeatDeltaEncoder.Frame unchanged = encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10), update("b", GameServerState.ONLINE, 5, 10)));
+        assertFalse(unchanged.keyframe());
+        assertEquals(List.of(), ids(unchanged));
+
+        HeartbeatDeltaEncoder.Frame changed = encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10), update("b", GameServerState.STOPPING, 5, 10)));
+        assertEquals(List.of("b"), ids(changed));
+    }
+
+    @Test
+    void changesWithinOneStepAreIgnored() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(6, 5, 100);
+        encoder.acknowledge(encoder.encode(List.of(update("a", GameServerState.ONLINE, 11, 1050))));
+
+        assertEquals(List.of(), ids(encoder.encode(List.of(update("a", GameServerState.ONLINE, 14.9, 1099)))));
+        assertEquals(List.of("a"), ids(encoder.encode(List.of(update("a", GameServerState.ONLINE, 15, 1050)))));
+        assertEquals(List.of("a"), ids(encoder.encode(List.of(update("a", GameServerState.ONLINE, 11, 1100)))));
+
+        NodeHeartbeatPacket.GameServerUpdate joined = update("a", GameServerState.ONLINE, 11, 1050);
+        joined.setPlayerCount(1);
+        assertEquals(List.of("a"), ids(encoder.encode(List.of(joined))));
+    }
+
+    @Test
+    void unacknowledgedChangesAreRepeated() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(6, 1, 1);
+        encoder.acknowledge(encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10))));
+
+        // Superseded before it was sent, so the backend never saw the state change
+        encoder.encode(List.of(update("a", GameServerState.STOPPING, 5, 10)));
+        HeartbeatDeltaEncoder.Frame next = encoder.encode(List.of(update("a", GameServerState.STOPPING, 5, 10)));
+        assertEquals(List.of("a"), ids(next));
+
+        encoder.acknowledge(next);
+        assertEquals(List.of(), ids(encoder.encode(List.of(update("a", GameServerState.STOPPING, 5, 10)))));
+    }
+
+    @Test
+    void keyframeIsSentEveryInterval() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(3, 1, 1);
+        List<NodeHeartbeatPacket.GameServerUpdate> updates = List.of(update("a", GameServerState.ONLINE, 5, 10));
+
+        for (int round = 0; round < 3; round++) {
+            HeartbeatDeltaEncoder.Frame keyframe = encoder.encode(updates);
+            assertTrue(keyframe.keyframe());
+            assertEquals(List.of("a"), ids(keyframe));
+            encoder.acknowledge(keyframe);
+
+            for (int i = 0; i < 2; i++) {
+                HeartbeatDeltaEncoder.Frame delta = encoder.encode(updates);
+                assertFalse(delta.keyframe());
+                assertEquals(List.of(), ids(delta));
+                encoder.acknowledge(delta);
+            }
+        }
+    }
+
+    @Test
+    void acknowledgedKeyframeDropsRemovedServersFromTheBaseline() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(2, 1, 1);
+        encoder.acknowledge(encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10), update("b", GameServerState.ONLINE, 5, 10))));
+        encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10)));
+
+        // "b" was deleted meanwhile, once it is recreated it has to be sent again
+        encoder.acknowledge(encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10))));
+        assertEquals(List.of("b"), ids(encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10), update("b", GameServerState.ONLINE, 5, 10)))));
+    }
+
+    @Test
+    void resetForcesAKeyframeAndIgnoresAcknowledgementsOfOlderFrames() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder(6, 1, 1);
+        encoder.acknowledge(encoder.encode(List.of(update("a", GameServerState.ONLINE, 5, 10))));
+        HeartbeatDeltaEncoder.Frame beforeReset = encoder.encode(List.of(update("a", GameServerState.STOPPING, 5, 10)));
+
+        encoder.reset();
+
+        HeartbeatDeltaEncoder.Frame keyframe = encoder.encode(List.of(update("a", GameServerState.OFFLINE, 0, 0)));
+        assertTrue(keyframe.keyframe());
+        assertEquals(beforeReset.epoch() + 1, keyframe.epoch());
+        encoder.acknowledge(keyframe);
+
+        // Delivered late over the old connection, it must not move the baseline back
+        encoder.acknowledge(beforeReset);
+        assertEquals(List.of(), ids(encoder.encode(List.of(update("a", GameServerState.OFFLINE, 0, 0)))));
+    }
+
+    private static NodeHeartbeatPacket.GameServerUpdate update(String id, GameServerState state, double cpuPercentage, long ramMegabytes) {
+        ResourceUsage usage = new ResourceUsage();
+        usage.setCpuPercentage(cpuPercentage);
+        // Like the sampler, RAM is reported in megabytes
+        usage.setRamBytes(ramMegabytes);
+
+        NodeHeartbeatPacket.GameServerUpdate update = new NodeHeartbeatPacket.GameServerUpdate();
+        update.setId(id);
+        update.setState(state);
+        update.setResourceUsage(usage);
+        return update;
+    }
+
+    private static List<String> ids(HeartbeatDeltaEncoder.Frame frame) {
+        return frame.updates().stream().map(NodeHeartbeatPacket.GameServerUpdate::getId).toList();
+    }
+}
@@ -0,0 +1,203 @@
+package de.swiftbyte.gmc.daemon.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ParallelZipWriterTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void multiChunkEntriesRoundTrip() throws IOException {
+        // Repeats across chunk boundaries, so the chunks actually use the dictionary of their predecessor
+        byte[] content = compressibleContent(3 * MIB + 12345);
+        Path file = write("TheIsland.ark", content);
+
+        for (ParallelZipWriter.CompressionLevel level : ParallelZipWriter.CompressionLevel.values()) {
+            Path archive = directory.resolve(level + ".zip");
+            try (ParallelZipWriter writer = new ParallelZipWriter(archive, level)) {
+                assertEquals(content.length, writer.addFile(file, "SavedArks/TheIsland.ark", content.length, Files.getLastModifiedTime(file).toMillis()));
+            }
+
+            try (ZipFile zip = new ZipFile(archive.toFile())) {
+                ZipEntry entry = zip.getEntry("SavedArks/TheIsland.ark");
+                assertNotNull(entry, level.name());
+                assertEquals(level == ParallelZipWriter.CompressionLevel.STORE ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getMethod());
+                assertEquals(content.length, entry.getSize());
+                assertArrayEquals(content, read(zip, entry), level.name());
+            }
+        }
+    }
+
+    @Test
+    void emptyFilesRoundTrip() throws IOException {
+        Path empty = write("empty.arkprofile", new byte[0]);
+        byte[] tribe = "tribe".getBytes(StandardCharsets.UTF_8);
+        Path other = write("1234.arktribe", tribe);
+
+        Path archive = directory.resolve("backup.zip");
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, ParallelZipWriter.CompressionLevel.DEFAULT)) {
+            assertEquals(0, writer.addFile(empty, "empty.arkprofile", 0, 0));
+            writer.addFile(other, "1234.arktribe", tribe.length, 0);
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(2, zip.size());
+            assertEquals(0, zip.getEntry("empty.arkprofile").getSize());
+            assertArrayEquals(new byte[0], read(zip, zip.getEntry("empty.arkprofile")));
+            assertArrayEquals(tribe, read(zip, zip.getEntry("1234.arktribe")));
+        }
+    }
+
+    @Test
+    void shrunkFileKeepsOnlyTheBytesRead() throws IOException {
+        byte[] content = compressibleContent(MIB / 2);
+        Path file = write("shrunk.ark", content);
+
+        Path archive = directory.resolve("backup.zip");
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, ParallelZipWriter.CompressionLevel.FAST)) {
+            assertEquals(content.length, writer.addFile(file, "shrunk.ark", content.length + 2L * MIB, 0));
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertArrayEquals(content, read(zip, zip.getEntry("shrunk.ark")));
+        }
+    }
+
+    @Test
+    void entriesAnnouncedAbove4GiBGetZip64Headers() throws IOException {
+        // The header layout only depends on the announced size, the file shrinking meanwhile keeps the test small
+        byte[] content = compressibleContent(MIB);
+        Path file = write("huge.ark", content);
+        long announcedSize = 5L * 1024 * MIB;
+
+        for (ParallelZipWriter.CompressionLevel level : new ParallelZipWriter.CompressionLevel[]{ParallelZipWriter.CompressionLevel.STORE, ParallelZipWriter.CompressionLevel.FAST}) {
+            Path archive = directory.resolve(level + ".zip");
+            try (ParallelZipWriter writer = new ParallelZipWriter(archive, level)) {
+                writer.addFile(file, "before.ark", content.length, 0);
+                assertEquals(content.length, writer.addFile(file, "huge.ark", announcedSize, 0));
+                writer.addFile(file, "after.ark", content.length, 0);
+            }
+
+            // Version needed to extract is 4.5 and the zip64 extra field is present in the local header
+            byte[] raw = Files.readAllBytes(archive);
+            int headerOffset = indexOf(raw, "huge.ark".getBytes(StandardCharsets.UTF_8)) - 30;
+            assertEquals(0x04034b50, readInt(raw, headerOffset));
+            assertEquals(45, readShort(raw, headerOffset + 4));
+            assertEquals(0xFFFFFFFFL, readInt(raw, headerOffset + 18) & 0xFFFFFFFFL);
+            assertEquals(20, readShort(raw, headerOffset + 28));
+            assertEquals(0x0001, readShort(raw, headerOffset + 30 + 8));
+
+            try (ZipFile zip = new ZipFile(archive.toFile())) {
+                assertEquals(3, zip.size());
+                for (String name : new String[]{"before.ark", "huge.ark", "after.ark"}) {
+                    ZipEntry entry = zip.getEntry(name);
+                    assertEquals(content.length, entry.getSize(), name);
+                    assertArrayEquals(content, read(zip, entry), name);
+                }
+            }
+        }
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC}) // Relies on sparse files, elsewhere this would write 4 GiB of zeros
+    void entriesAbove4GiBRoundTrip() throws IOException {
+        long size = 4L * 1024 * MIB + 12345;
+        byte[] tail = "end of save".getBytes(StandardCharsets.UTF_8);
+        Path file = directory.resolve("huge.ark");
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            out.setLength(size);
+            out.seek(size - tail.length);
+            out.write(tail);
+        }
+
+        Path archive = directory.resolve("backup.zip");
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, ParallelZipWriter.CompressionLevel.FAST)) {
+            assertEquals(size, writer.addFile(file, "huge.ark", size, 0));
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ZipEntry entry = zip.getEntry("huge.ark");
+            assertEquals(size, entry.getSize());
+
+            CRC32 crc = new CRC32();
+            long read = 0;
+            byte[] buffer = new byte[MIB];
+            try (InputStream in = zip.getInputStream(entry)) {
+                int length;
+                while ((length = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, length);
+                    read += length;
+                }
+            }
+            assertEquals(size, read);
+            assertEquals(entry.getCrc(), crc.getValue());
+        }
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content);
+        return file;
+    }
+
+    private static byte[] compressibleContent(int length) {
+        Random random = new Random(length);
+        byte[] block = new byte[64 * 1024];
+        random.nextBytes(block);
+
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            // Mostly repeated blocks with some noise, like a real save
+            content[i] = i % 7 == 0 ? (byte) random.nextInt() : block[i % block.length];
+        }
+        return content;
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("Pattern not found");
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return readShort(data, offset) | readShort(data, offset + 2) << 16;
+    }
+}
@@ -0,0 +1,143 @@
+package de.swiftbyte.gmc.daemon.utils.rcon;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Source RCON server on a local port for tests. Authentication is handled here, commands are passed to the
+ * {@link CommandHandler} together with the connection they arrived on.
+ */
+public class FakeRconServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final String password;
+    private final CommandHandler handler;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<Connection> openConnections = new CopyOnWriteArrayList<>();
+
+    public FakeRconServer(String password, CommandHandler handler) throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.password = password;
+        this.handler = handler;
+        Thread.ofVirtual().name("fake-rcon-accept").start(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Connection connection : openConnections) {
+            connection.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Connection connection = new Connection(serverSocket.accept(), connections.incrementAndGet());
+                openConnections.add(connection);
+                Thread.ofVirtual().name("fake-rcon-" + connection.getNumber()).start(connection::readLoop);
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface CommandHandler {
+
+        void handle(Connection connection, int id, String command) throws IOException;
+    }
+
+    public class Connection implements Closeable {
+
+        private final Socket socket;
+        private final int number;
+        private final DataInputStream in;
+        private final OutputStream out;
+
+        private Connection(Socket socket, int number) throws IOException {
+            this.socket = socket;
+            this.number = number;
+            this.in = new DataInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+        }
+
+        /**
+         * @return the number of this connection, counting from 1 in the order they were accepted
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        public void respond(int id, String body) throws IOException {
+            write(id, 0, body);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        private void readLoop() {
+            try {
+                while (!socket.isClosed()) {
+                    int size = Integer.reverseBytes(in.readInt());
+                    byte[] data = new byte[size];
+                    in.readFully(data);
+
+                    ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+                    int id = buffer.getInt();
+                    int type = buffer.getInt();
+                    String body = new String(data, 8, size - 10, StandardCharsets.UTF_8);
+
+                    if (type == 3) {
+                        // Like the game, an empty response value precedes the auth response
+                        write(id, 0, "");
+                        write(password.equals(body) ? id : -1, 2, "");
+                    } else {
+                        handler.handle(this, id, body);
+                    }
+                }
+            } catch (IOException ignored) {
+            } finally {
+                openConnections.remove(this);
+            }
+        }
+
+        private void write(int id, int type, String body) throws IOException {
+            byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(14 + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(10 + payload.length);
+            buffer.putInt(id);
+            buffer.putInt(type);
+            buffer.put(payload);
+            buffer.put((byte) 0);
+            buffer.put((byte) 0);
+
+            synchronized (out) {
+                out.write(buffer.array());
+                out.flush();
+            }
+        }
+    }
+}
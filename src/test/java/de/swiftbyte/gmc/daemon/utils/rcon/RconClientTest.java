@@ -0,0 +1,121 @@
+package de.swiftbyte.gmc.daemon.utils.rcon;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RconClientTest {
+
+    private static final String PASSWORD = "secret";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private FakeRconServer server;
+    private RconClient client;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void responsesAreMatchedByRequestId() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        List<String> commands = new ArrayList<>();
+
+        // Answers only once all three commands arrived, in reverse order
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> {
+            synchronized (ids) {
+                ids.add(id);
+                commands.add(command);
+                if (ids.size() == 3) {
+                    for (int i = 2; i >= 0; i--) {
+                        connection.respond(ids.get(i), "echo:" + commands.get(i));
+                    }
+                }
+            }
+        });
+        client = RconClient.connect("127.0.0.1", server.getPort(), PASSWORD, TIMEOUT);
+
+        CompletableFuture<String> first = client.command("ListPlayers", TIMEOUT);
+        CompletableFuture<String> second = client.command("SaveWorld", TIMEOUT);
+        CompletableFuture<String> third = client.command("GetChat", TIMEOUT);
+
+        assertEquals("echo:ListPlayers", first.get(5, TimeUnit.SECONDS));
+        assertEquals("echo:SaveWorld", second.get(5, TimeUnit.SECONDS));
+        assertEquals("echo:GetChat", third.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void unansweredCommandsTimeOutWithoutBreakingTheConnection() throws Exception {
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> {
+            if (command.equals("hang")) {
+                // Answers long after the caller gave up
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        Thread.sleep(300);
+                        connection.respond(id, "late");
+                    } catch (InterruptedException | IOException ignored) {
+                    }
+                });
+                return;
+            }
+            connection.respond(id, "echo:" + command);
+        });
+        client = RconClient.connect("127.0.0.1", server.getPort(), PASSWORD, TIMEOUT);
+
+        CompletableFuture<String> hanging = client.command("hang", Duration.ofMillis(100));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> hanging.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+
+        // The late response is discarded instead of completing the next command
+        Thread.sleep(500);
+        assertFalse(client.isClosed());
+        assertEquals("echo:ListPlayers", client.command("ListPlayers", TIMEOUT).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void brokenConnectionFailsPendingCommands() throws Exception {
+        server = new FakeRconServer(PASSWORD, (connection, _, command) -> {
+            if (command.equals("DoExit")) {
+                connection.close();
+            }
+        });
+        client = RconClient.connect("127.0.0.1", server.getPort(), PASSWORD, TIMEOUT);
+
+        CompletableFuture<String> pending = client.command("ListPlayers", TIMEOUT);
+        CompletableFuture<String> exit = client.command("DoExit", TIMEOUT);
+
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> pending.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> exit.get(5, TimeUnit.SECONDS)).getCause());
+        assertTrue(client.isClosed());
+
+        // Commands on a closed client fail right away
+        assertTrue(client.command("ListPlayers", TIMEOUT).isCompletedExceptionally());
+    }
+
+    @Test
+    void wrongPasswordIsRejected() throws IOException {
+        server = new FakeRconServer(PASSWORD, (connection, id, command) -> connection.respond(id, command));
+
+        assertThrows(RconAuthenticationException.class, () -> RconClient.connect("127.0.0.1", server.getPort(), "wrong", TIMEOUT));
+    }
+}